@@ -0,0 +1,239 @@
+package com.singingbush.sdl;
+
+/**
+ * Finds the ends of top level tags without tokenizing. The scanner is fed one character at a
+ * time and keeps just enough lexer state (whether it is inside a string, binary literal or
+ * comment, the depth of nested blocks and any pending line continuation) to know when a new
+ * line at depth 0 finishes a top level tag. That state survives between calls, so input can
+ * be split at any character.
+ *
+ * @since 2.1.1
+ */
+final class BoundaryScanner {
+
+    private static final int NORMAL = 0;
+    private static final int STRING = 1;
+    private static final int STRING_ESCAPE = 2;
+    private static final int BACKTICK = 3;
+    private static final int BINARY = 4;
+    private static final int CHARACTER = 5;
+    private static final int CHARACTER_ESCAPE = 6;
+    private static final int LINE_COMMENT = 7;
+    private static final int BLOCK_COMMENT = 8;
+    private static final int BLOCK_COMMENT_STAR = 9;
+    private static final int SLASH = 10;
+    private static final int DASH = 11;
+    private static final int STRING_ESCAPE_SPACE = 12;
+
+    private int state = NORMAL;
+    private int depth;
+    private int lines;
+    private boolean continuation;
+    private boolean inToken;
+    private boolean lineStart = true;
+    private boolean closing;
+
+    BoundaryScanner() {
+    }
+
+    /**
+     * @param depth the number of blocks already open, with a depth of 1 {@link #accept(char)}
+     *              returns true at the end of the line that closes the current block
+     */
+    BoundaryScanner(final int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @param c the next character of the input
+     * @return true if the character is the new line that ends a top level tag
+     */
+    boolean accept(final char c) {
+        if(c == '\n') {
+            lines++;
+        }
+
+        switch(state) {
+            case STRING:
+                if(c == '\\') {
+                    state = STRING_ESCAPE;
+                } else if(c == '"') {
+                    state = NORMAL;
+                } else if(c == '\n') {
+                    // unterminated, leave the parser to report it
+                    state = NORMAL;
+                    return endOfLine();
+                }
+                return false;
+            case STRING_ESCAPE:
+                // an escaped line ending continues the string on the next line, as does one
+                // with only whitespace between it and the escape
+                state = c == '\r' || CharClass.isWhitespace(c) ? STRING_ESCAPE_SPACE : STRING;
+                return false;
+            case STRING_ESCAPE_SPACE:
+                if(c == '\n') {
+                    state = STRING;
+                    return false;
+                } else if(c == '\r' || CharClass.isWhitespace(c)) {
+                    return false;
+                }
+                // not a continuation, leave the parser to report it
+                state = STRING;
+                return accept(c);
+            case BACKTICK:
+                if(c == '`') {
+                    state = NORMAL;
+                }
+                return false;
+            case BINARY:
+                if(c == ']') {
+                    state = NORMAL;
+                }
+                return false;
+            case CHARACTER:
+                if(c == '\\') {
+                    state = CHARACTER_ESCAPE;
+                } else if(c == '\'') {
+                    state = NORMAL;
+                } else if(c == '\n') {
+                    state = NORMAL;
+                    return endOfLine();
+                }
+                return false;
+            case CHARACTER_ESCAPE:
+                state = CHARACTER;
+                return false;
+            case LINE_COMMENT:
+                if(c == '\n') {
+                    state = NORMAL;
+                    return endOfLine();
+                }
+                return false;
+            case BLOCK_COMMENT:
+                if(c == '*') {
+                    state = BLOCK_COMMENT_STAR;
+                }
+                return false;
+            case BLOCK_COMMENT_STAR:
+                state = c == '/' ? NORMAL : c == '*' ? BLOCK_COMMENT_STAR : BLOCK_COMMENT;
+                return false;
+            case SLASH:
+                if(c == '/') {
+                    state = LINE_COMMENT;
+                    return false;
+                } else if(c == '*') {
+                    state = BLOCK_COMMENT;
+                    return false;
+                }
+                state = NORMAL;
+                return normal(c);
+            case DASH:
+                if(c == '-') {
+                    state = LINE_COMMENT;
+                    return false;
+                }
+                state = NORMAL;
+                return normal(c);
+            default:
+                return normal(c);
+        }
+    }
+
+    private boolean normal(final char c) {
+        final boolean wasInToken = inToken;
+        final boolean wasLineStart = lineStart;
+        inToken = false;
+        lineStart = false;
+
+        switch(c) {
+            case '\n':
+                return endOfLine();
+            case '\r':
+                lineStart = wasLineStart;
+                return false;
+            case '"':
+                continuation = false;
+                state = STRING;
+                return false;
+            case '`':
+                continuation = false;
+                state = BACKTICK;
+                return false;
+            case '[':
+                continuation = false;
+                state = BINARY;
+                return false;
+            case '\'':
+                continuation = false;
+                state = CHARACTER;
+                return false;
+            case '#':
+                state = LINE_COMMENT;
+                return false;
+            case '/':
+                // also appears in dates, those are never followed by '/' or '*'
+                inToken = wasInToken;
+                state = SLASH;
+                return false;
+            case '\\':
+                continuation = true;
+                return false;
+            case '{':
+                continuation = false;
+                if(!closing) {
+                    depth++;
+                }
+                return false;
+            case '}':
+                continuation = false;
+                if(!closing && depth > 0) {
+                    depth--;
+                }
+                // the parser ignores anything after a '}' that starts a line
+                closing = closing || wasLineStart;
+                return false;
+            case '-':
+                continuation = false;
+                inToken = true;
+                if(!wasInToken) {
+                    // "--" only starts a comment where a new token could begin
+                    state = DASH;
+                }
+                return false;
+            default:
+                if(CharClass.isWhitespace(c)) {
+                    lineStart = wasLineStart;
+                } else {
+                    continuation = false;
+                    // anything outside ASCII, including each byte of a multi-byte UTF-8 sequence, is part of a token
+                    inToken = c >= 0x80 || CharClass.isIdentifierPart(c) || CharClass.isNumberPart(c);
+                }
+                return false;
+        }
+    }
+
+    private boolean endOfLine() {
+        inToken = false;
+        if(continuation) {
+            continuation = false;
+            return false;
+        }
+        lineStart = true;
+        closing = false;
+        return depth == 0;
+    }
+
+    /**
+     * @return true if the input so far ends between top level tags
+     */
+    boolean isBetweenTags() {
+        return (state == NORMAL || state == LINE_COMMENT) && depth == 0 && !continuation;
+    }
+
+    /**
+     * @return the number of new lines seen so far
+     */
+    int getLines() {
+        return lines;
+    }
+}
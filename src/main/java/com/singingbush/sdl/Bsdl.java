@@ -0,0 +1,635 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A compact binary encoding of SDL (BSDL) for passing tags between services, which can be
+ * decoded far faster than SDL text can be parsed. Encoding then decoding gives tags equal to the
+ * originals, including their comments:</p>
+ *
+ * <pre>
+ * byte[] data = Bsdl.encode(tags);
+ * List&lt;Tag&gt; copy = Bsdl.decode(data);
+ * </pre>
+ *
+ * <p>The data starts with the bytes "BSDL" and a version, followed by the calls an
+ * {@link SdlHandler} would receive from the parser, each as a one byte op code:</p>
+ *
+ * <ul>
+ *     <li>tag: namespace and name</li>
+ *     <li>attribute: namespace, key and value</li>
+ *     <li>start children, end tag and comment (the comment's text)</li>
+ *     <li>value: a fixed op code for each {@link SdlType}, with booleans, kinds of number and
+ *     kinds of date time each having their own code</li>
+ * </ul>
+ *
+ * <p>Lengths and numbers are unsigned LEB128 varints, signed numbers being zig-zag encoded first.
+ * Text is UTF-8 and binary values are raw bytes. Namespaces, names, attribute keys and zone ids go
+ * through a string table that is built as the document is written, the first use of a string is
+ * written as 0 followed by the string and later uses by the string's position in the table plus 1.
+ * Floats and doubles are their IEEE 754 bits, big endian. A decimal is its scale and the two's
+ * complement bytes of its unscaled value. Dates are days since the epoch, date times add the
+ * nanosecond of the day and, if zoned, the offset in seconds and zone id. Durations are seconds
+ * and nanoseconds.</p>
+ *
+ * @since 2.1.1
+ */
+public final class Bsdl {
+
+    private static final byte[] MAGIC = {'B', 'S', 'D', 'L'};
+    private static final int VERSION = 1;
+
+    private static final int TAG = 1;
+    private static final int ATTRIBUTE = 2;
+    private static final int START_CHILDREN = 3;
+    private static final int END_TAG = 4;
+    private static final int COMMENT = 5;
+
+    // value op codes, grouped by SdlType in blocks of 8 with the low bits telling apart the kinds of each type
+    private static final int STRING = 0x30;
+    private static final int STRING_MULTILINE = 0x38;
+    private static final int CHARACTER = 0x40;
+    private static final int FALSE = 0x48;
+    private static final int TRUE = 0x49;
+    private static final int INT = 0x50;
+    private static final int LONG = 0x51;
+    private static final int FLOAT = 0x52;
+    private static final int DOUBLE = 0x53;
+    private static final int DECIMAL = 0x54;
+    private static final int DATE = 0x58;
+    private static final int LOCAL_DATE_TIME = 0x60;
+    private static final int ZONED_DATE_TIME = 0x61;
+    private static final int DURATION = 0x68;
+    private static final int BINARY = 0x70;
+    private static final int NULL = 0x78;
+
+    private Bsdl() {
+    }
+
+    /**
+     * @param tags the top level tags of a document
+     * @return the tags encoded as BSDL
+     * @throws IllegalArgumentException if a value is not one of the types created by {@link SDL#value}
+     */
+    @NotNull
+    public static byte[] encode(@NotNull final List<Tag> tags) {
+        final Encoder encoder = new Encoder(null);
+        try {
+            encoder.writeDocument(tags);
+        } catch (final IOException e) {
+            // only thrown by a stream
+            throw new UncheckedIOException(e);
+        }
+        return Arrays.copyOf(encoder.buffer, encoder.position);
+    }
+
+    /**
+     * Encode a document to a stream, which is flushed but not closed
+     *
+     * @param tags the top level tags of a document
+     * @param out where the BSDL is written
+     * @throws IOException If there is an IO problem writing to the stream
+     * @throws IllegalArgumentException if a value is not one of the types created by {@link SDL#value}
+     */
+    public static void encode(@NotNull final List<Tag> tags, @NotNull final OutputStream out) throws IOException {
+        final Encoder encoder = new Encoder(out);
+        encoder.writeDocument(tags);
+        encoder.drain();
+        out.flush();
+    }
+
+    /**
+     * @param data a document encoded as BSDL
+     * @return the top level tags of the document
+     * @throws IllegalArgumentException if the data is not valid BSDL
+     */
+    @NotNull
+    public static List<Tag> decode(@NotNull final byte[] data) {
+        final TreeBuilder builder = new TreeBuilder(true);
+        decode(data, builder);
+        return builder.getTags();
+    }
+
+    /**
+     * Make the calls to a handler that the parser would make when reading the document as text,
+     * except that a comment is passed as a whole rather than line by line
+     *
+     * @param data a document encoded as BSDL
+     * @param handler told about each tag in the document
+     * @throws IllegalArgumentException if the data is not valid BSDL
+     */
+    public static void decode(@NotNull final byte[] data, @NotNull final SdlHandler handler) {
+        new Decoder(data).readDocument(handler);
+    }
+
+    /**
+     * Writes the calls made to it as BSDL into a buffer, which is emptied into the stream when full
+     */
+    private static final class Encoder implements SdlHandler {
+
+        private final OutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private byte[] buffer = new byte[8192];
+        private int position;
+
+        private Encoder(final OutputStream out) {
+            this.out = out;
+        }
+
+        void writeDocument(final List<Tag> tags) throws IOException {
+            writeBytes(MAGIC, 0, MAGIC.length);
+            writeByte(VERSION);
+            try {
+                for(final Tag tag : tags) {
+                    tag.replayTo(this);
+                }
+            } catch (final UncheckedIOException e) {
+                // SdlHandler methods can't throw IOException
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public void startTag(@NotNull final String namespace, @NotNull final String name) {
+            op(TAG);
+            writeSymbol(namespace);
+            writeSymbol(name);
+        }
+
+        @Override
+        public void value(@NotNull final SdlValue value) {
+            writeValue(value);
+        }
+
+        @Override
+        public void attribute(@NotNull final String namespace, @NotNull final String key, @NotNull final SdlValue value) {
+            op(ATTRIBUTE);
+            writeSymbol(namespace);
+            writeSymbol(key);
+            writeValue(value);
+        }
+
+        @Override
+        public void startChildren() {
+            op(START_CHILDREN);
+        }
+
+        @Override
+        public void endTag() {
+            op(END_TAG);
+        }
+
+        @Override
+        public void comment(@NotNull final String text) {
+            op(COMMENT);
+            writeString(text);
+        }
+
+        private void op(final int op) {
+            try {
+                writeByte(op);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeSymbol(final String s) {
+            try {
+                final Integer index = strings.get(s);
+                if(index != null) {
+                    writeVarint(index + 1);
+                } else {
+                    strings.put(s, strings.size());
+                    writeVarint(0);
+                    writeText(s);
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeString(final String s) {
+            try {
+                writeText(s);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeValue(final SdlValue<?> value) {
+            try {
+                final SdlType type = value.getType();
+                if(type == SdlType.NUMBER) {
+                    writeNumber(value);
+                    return;
+                }
+
+                final Object v = value.getValue();
+                switch (type) {
+                    case STRING:
+                        writeByte(STRING);
+                        writeText((String) v);
+                        return;
+                    case STRING_MULTILINE:
+                        writeByte(STRING_MULTILINE);
+                        writeText((String) v);
+                        return;
+                    case CHARACTER:
+                        writeByte(CHARACTER);
+                        writeVarint((Character) v);
+                        return;
+                    case BOOLEAN:
+                        writeByte((Boolean) v ? TRUE : FALSE);
+                        return;
+                    case DATE:
+                        writeByte(DATE);
+                        writeVarint(zigZag(((LocalDate) v).toEpochDay()));
+                        return;
+                    case DATETIME:
+                        if(v instanceof LocalDateTime) {
+                            final LocalDateTime dateTime = (LocalDateTime) v;
+                            writeByte(LOCAL_DATE_TIME);
+                            writeVarint(zigZag(dateTime.toLocalDate().toEpochDay()));
+                            writeVarint(dateTime.toLocalTime().toNanoOfDay());
+                            return;
+                        } else if(v instanceof ZonedDateTime) {
+                            final ZonedDateTime dateTime = (ZonedDateTime) v;
+                            writeByte(ZONED_DATE_TIME);
+                            writeVarint(zigZag(dateTime.toLocalDate().toEpochDay()));
+                            writeVarint(dateTime.toLocalTime().toNanoOfDay());
+                            writeVarint(zigZag(dateTime.getOffset().getTotalSeconds()));
+                            writeSymbol(dateTime.getZone().getId());
+                            return;
+                        }
+                        break;
+                    case DURATION:
+                        final Duration duration = (Duration) v;
+                        writeByte(DURATION);
+                        writeVarint(zigZag(duration.getSeconds()));
+                        writeVarint(duration.getNano());
+                        return;
+                    case BINARY:
+                        final byte[] bytes = (byte[]) v;
+                        writeByte(BINARY);
+                        writeVarint(bytes.length);
+                        writeBytes(bytes, 0, bytes.length);
+                        return;
+                    case NULL:
+                        writeByte(NULL);
+                        return;
+                }
+                throw new IllegalArgumentException("Cannot encode " + type + " value " + v);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeNumber(final SdlValue<?> value) throws IOException {
+            // values held as primitives are written without boxing
+            if(value instanceof SdlValue.IntValue) {
+                writeByte(INT);
+                writeVarint(zigZag(value.intValue()));
+                return;
+            } else if(value instanceof SdlValue.LongValue) {
+                writeByte(LONG);
+                writeVarint(zigZag(value.longValue()));
+                return;
+            } else if(value instanceof SdlValue.FloatValue) {
+                writeByte(FLOAT);
+                writeFixed(Float.floatToRawIntBits((float) value.doubleValue()), 4);
+                return;
+            } else if(value instanceof SdlValue.DoubleValue) {
+                writeByte(DOUBLE);
+                writeFixed(Double.doubleToRawLongBits(value.doubleValue()), 8);
+                return;
+            }
+
+            final Object v = value.getValue();
+            if(v instanceof Integer) {
+                writeByte(INT);
+                writeVarint(zigZag((Integer) v));
+            } else if(v instanceof Long) {
+                writeByte(LONG);
+                writeVarint(zigZag((Long) v));
+            } else if(v instanceof Float) {
+                writeByte(FLOAT);
+                writeFixed(Float.floatToRawIntBits((Float) v), 4);
+            } else if(v instanceof Double) {
+                writeByte(DOUBLE);
+                writeFixed(Double.doubleToRawLongBits((Double) v), 8);
+            } else if(v instanceof BigDecimal) {
+                final BigDecimal decimal = (BigDecimal) v;
+                final byte[] unscaled = decimal.unscaledValue().toByteArray();
+                writeByte(DECIMAL);
+                writeVarint(zigZag(decimal.scale()));
+                writeVarint(unscaled.length);
+                writeBytes(unscaled, 0, unscaled.length);
+            } else {
+                throw new IllegalArgumentException("Cannot encode number " + v);
+            }
+        }
+
+        private void writeText(final String s) throws IOException {
+            final byte[] bytes = s.getBytes(UTF_8);
+            writeVarint(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        private void writeVarint(long value) throws IOException {
+            ensure(10);
+            while((value & ~0x7fL) != 0) {
+                buffer[position++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeFixed(final long bits, final int bytes) throws IOException {
+            ensure(bytes);
+            for(int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (bits >>> shift);
+            }
+        }
+
+        private void writeByte(final int b) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte) b;
+        }
+
+        private void writeBytes(final byte[] bytes, final int offset, final int length) throws IOException {
+            if(out != null && length > buffer.length / 2) {
+                // large values go straight to the stream rather than through the buffer
+                drain();
+                out.write(bytes, offset, length);
+                return;
+            }
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        private void ensure(final int length) throws IOException {
+            if(buffer.length - position >= length) {
+                return;
+            }
+            if(out != null) {
+                drain();
+            }
+            if(buffer.length - position < length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        void drain() throws IOException {
+            if(position > 0) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+
+        private static long zigZag(final long value) {
+            return value << 1 ^ value >> 63;
+        }
+    }
+
+    /**
+     * Reads BSDL from an array, checking that it is well formed as it goes
+     */
+    private static final class Decoder {
+
+        private final byte[] data;
+
+        private int position;
+        private String[] strings = new String[32];
+        private int stringCount;
+
+        private Decoder(final byte[] data) {
+            this.data = data;
+        }
+
+        void readDocument(final SdlHandler handler) {
+            if(data.length < MAGIC.length + 1 || !Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC)) {
+                throw new IllegalArgumentException("The data is not BSDL");
+            }
+            position = MAGIC.length;
+            final int version = data[position++];
+            if(version != VERSION) {
+                throw new IllegalArgumentException("Unsupported BSDL version " + version);
+            }
+
+            int depth = 0;
+            boolean inHeader = false;
+            while(position < data.length) {
+                final int op = readByte();
+                switch (op) {
+                    case TAG:
+                        if(inHeader) {
+                            throw malformed("Tag started before the children of the previous tag");
+                        }
+                        handler.startTag(readSymbol(), readSymbol());
+                        inHeader = true;
+                        depth++;
+                        break;
+                    case ATTRIBUTE:
+                        if(!inHeader) {
+                            throw malformed("Attribute outside of a tag");
+                        }
+                        final String namespace = readSymbol();
+                        final String key = readSymbol();
+                        handler.attribute(namespace, key, readValue(readByte()));
+                        break;
+                    case START_CHILDREN:
+                        if(!inHeader) {
+                            throw malformed("Children started outside of a tag");
+                        }
+                        inHeader = false;
+                        handler.startChildren();
+                        break;
+                    case END_TAG:
+                        if(depth == 0) {
+                            throw malformed("Tag ended without being started");
+                        }
+                        inHeader = false;
+                        depth--;
+                        handler.endTag();
+                        break;
+                    case COMMENT:
+                        if(inHeader) {
+                            throw malformed("Comment inside a tag");
+                        }
+                        handler.comment(readText());
+                        break;
+                    default:
+                        if(!inHeader) {
+                            throw malformed("Value outside of a tag");
+                        }
+                        handler.value(readValue(op));
+                }
+            }
+            if(depth != 0) {
+                throw malformed("Unexpected end of data");
+            }
+        }
+
+        private SdlValue<?> readValue(final int code) {
+            try {
+                return readValueOf(code);
+            } catch (final DateTimeException | ArithmeticException | NumberFormatException e) {
+                // a date, time, offset or number that is out of range
+                throw malformed("Bad value: " + e.getMessage());
+            }
+        }
+
+        private SdlValue<?> readValueOf(final int code) {
+            switch (code) {
+                case STRING:
+                    return ValueCache.string(readText());
+                case STRING_MULTILINE:
+                    return new SdlValue<>(readText(), SdlType.STRING_MULTILINE);
+                case CHARACTER:
+                    return SDL.value((char) readVarint());
+                case FALSE:
+                    return SDL.value(false);
+                case TRUE:
+                    return SDL.value(true);
+                case INT:
+                    return SDL.value((int) unZigZag(readVarint()));
+                case LONG:
+                    return SDL.value(unZigZag(readVarint()));
+                case FLOAT:
+                    return SDL.value(Float.intBitsToFloat((int) readFixed(4)));
+                case DOUBLE:
+                    return SDL.value(Double.longBitsToDouble(readFixed(8)));
+                case DECIMAL:
+                    final int scale = (int) unZigZag(readVarint());
+                    final BigInteger unscaled = new BigInteger(readBytes());
+                    return new SdlValue<>(new BigDecimal(unscaled, scale), SdlType.NUMBER);
+                case DATE:
+                    return SDL.value(LocalDate.ofEpochDay(unZigZag(readVarint())));
+                case LOCAL_DATE_TIME:
+                    return SDL.value(readLocalDateTime());
+                case ZONED_DATE_TIME:
+                    final LocalDateTime local = readLocalDateTime();
+                    final ZoneOffset offset = ZoneOffset.ofTotalSeconds((int) unZigZag(readVarint()));
+                    final String zone = readSymbol();
+                    try {
+                        return SDL.value(ZonedDateTime.ofLocal(local, ZoneId.of(zone), offset));
+                    } catch (final DateTimeException e) {
+                        throw malformed("Unknown zone " + zone);
+                    }
+                case DURATION:
+                    return SDL.value(Duration.ofSeconds(unZigZag(readVarint()), readVarint()));
+                case BINARY:
+                    return SDL.value(readBytes());
+                case NULL:
+                    return SDL.NULL;
+                default:
+                    throw malformed("Unknown op code " + code);
+            }
+        }
+
+        private LocalDateTime readLocalDateTime() {
+            return LocalDateTime.of(LocalDate.ofEpochDay(unZigZag(readVarint())), LocalTime.ofNanoOfDay(readVarint()));
+        }
+
+        private int readByte() {
+            if(position >= data.length) {
+                throw malformed("Unexpected end of data");
+            }
+            return data[position++] & 0xff;
+        }
+
+        private String readSymbol() {
+            final long index = readVarint();
+            if(index == 0) {
+                if(stringCount == strings.length) {
+                    strings = Arrays.copyOf(strings, stringCount * 2);
+                }
+                final String s = readText();
+                strings[stringCount++] = s;
+                return s;
+            }
+            if(index < 0 || index > stringCount) {
+                throw malformed("Unknown string " + index);
+            }
+            return strings[(int) index - 1];
+        }
+
+        private String readText() {
+            final int length = readLength();
+            final String s = new String(data, position, length, UTF_8);
+            position += length;
+            return s;
+        }
+
+        private byte[] readBytes() {
+            final int length = readLength();
+            final byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private int readLength() {
+            final long length = readVarint();
+            if(length < 0 || length > data.length - position) {
+                throw malformed("Unexpected end of data");
+            }
+            return (int) length;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                if(position >= data.length) {
+                    throw malformed("Unexpected end of data");
+                }
+                final byte b = data[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if(b >= 0) {
+                    return value;
+                }
+            }
+            throw malformed("Varint is too long");
+        }
+
+        private long readFixed(final int bytes) {
+            if(data.length - position < bytes) {
+                throw malformed("Unexpected end of data");
+            }
+            long bits = 0;
+            for(int i = 0; i < bytes; i++) {
+                bits = bits << 8 | (data[position++] & 0xff);
+            }
+            return bits;
+        }
+
+        private IllegalArgumentException malformed(final String message) {
+            return new IllegalArgumentException(message + " at byte " + position + " of BSDL data");
+        }
+
+        private static long unZigZag(final long value) {
+            return value >>> 1 ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.singingbush.sdl;
+
+/**
+ * Character classification used by the {@link Parser} lexer and by
+ * {@link SDL#validateIdentifier(String)}. ASCII characters are looked up in a
+ * precomputed table, anything outside of ASCII falls back to the unicode
+ * letter and digit checks in {@link Character}.
+ *
+ * @since 2.1.1
+ */
+final class CharClass {
+
+    private static final int IDENTIFIER_START = 1;
+    private static final int IDENTIFIER_PART = 1 << 1;
+    private static final int WHITESPACE = 1 << 2;
+    private static final int NUMBER_START = 1 << 3;
+    private static final int NUMBER_PART = 1 << 4;
+    private static final int PUNCTUATION = 1 << 5;
+    private static final int DIGIT = 1 << 6;
+
+    private static final byte[] TABLE = new byte[128];
+
+    static {
+        for(char c = 'a'; c <= 'z'; c++) {
+            set(c, IDENTIFIER_START | IDENTIFIER_PART | NUMBER_PART);
+            set(Character.toUpperCase(c), IDENTIFIER_START | IDENTIFIER_PART | NUMBER_PART);
+        }
+        for(char c = '0'; c <= '9'; c++) {
+            set(c, DIGIT | IDENTIFIER_PART | NUMBER_START | NUMBER_PART);
+        }
+        set('_', IDENTIFIER_START | IDENTIFIER_PART);
+        set('$', IDENTIFIER_START | IDENTIFIER_PART);
+        set('\n', IDENTIFIER_START | IDENTIFIER_PART);
+        set('-', IDENTIFIER_PART | NUMBER_START | NUMBER_PART);
+        set('.', IDENTIFIER_PART | NUMBER_START | NUMBER_PART);
+        set('+', NUMBER_PART);
+        set(':', NUMBER_PART | PUNCTUATION);
+        set('{', PUNCTUATION);
+        set('}', PUNCTUATION);
+        set('=', PUNCTUATION);
+        set(' ', WHITESPACE);
+        set('\t', WHITESPACE);
+    }
+
+    private CharClass() {}
+
+    private static void set(final char c, final int flags) {
+        TABLE[c] |= flags;
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character can begin an identifier that the lexer has not already
+     *     claimed as the start of a number, date or time span
+     */
+    static boolean isIdentifierStart(final char c) {
+        return c < 128 ? (TABLE[c] & IDENTIFIER_START) != 0 : Character.isLetter(c);
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character can appear in an identifier after the first character
+     */
+    static boolean isIdentifierPart(final char c) {
+        return c < 128 ? (TABLE[c] & IDENTIFIER_PART) != 0 : Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * @param c a character
+     * @return true for a space or tab
+     */
+    static boolean isWhitespace(final char c) {
+        return c < 128 && (TABLE[c] & WHITESPACE) != 0;
+    }
+
+    /**
+     * @param c a character
+     * @return true for an ASCII digit
+     */
+    static boolean isDigit(final char c) {
+        return c < 128 && (TABLE[c] & DIGIT) != 0;
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character starts a number, date or time span literal
+     */
+    static boolean isNumberStart(final char c) {
+        return c < 128 && (TABLE[c] & NUMBER_START) != 0;
+    }
+
+    /**
+     * Note that '/' and ' ' can also appear in dates and date times but need context
+     * so are handled by the lexer itself.
+     *
+     * @param c a character
+     * @return true if the character can appear in a number, date or time span literal
+     */
+    static boolean isNumberPart(final char c) {
+        return c < 128 && (TABLE[c] & NUMBER_PART) != 0;
+    }
+
+    /**
+     * @param c a character
+     * @return true for one of the punctuation tokens '{', '}', '=' or ':'
+     */
+    static boolean isPunctuation(final char c) {
+        return c < 128 && (TABLE[c] & PUNCTUATION) != 0;
+    }
+}
@@ -0,0 +1,364 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.Reader;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <p>A deeply immutable snapshot of a {@link Tag}, created with {@link Tag#freeze()}. All the
+ * children of an ImmutableTag are also immutable and every method that would change the tag
+ * throws {@link UnsupportedOperationException}.</p>
+ *
+ * <p>The hash code is worked out once when the snapshot is taken, making immutable tags
+ * suitable as map keys. Comparing two immutable tags with different hash codes returns
+ * straight away without looking at their contents.</p>
+ *
+ * <p>Immutable tags can be used as a persistent tree. The {@code with} methods return a new
+ * tag with the change applied, sharing every unchanged child with the original. Changing a
+ * tag deep within a tree with {@link #replace(int[], Tag)} only copies the tags on the path
+ * from the root, along with each one's list of children, and anyone holding the old root
+ * continues to see the old tree. {@link #replace(ImmutableTag, Tag)} first has to search
+ * the tree for the tag being replaced; {@link #pathTo(ImmutableTag)} does that search once
+ * so its result can be reused.</p>
+ *
+ * <pre>
+ * ImmutableTag v1 = new Parser(text).parse().get(0).freeze();
+ * ImmutableTag server = (ImmutableTag) v1.getChild("server");
+ * ImmutableTag v2 = v1.replace(server, server.withAttribute("port", SDL.value("8081")));
+ *
+ * int[] path = v2.pathTo((ImmutableTag) v2.getChild("server"));
+ * ImmutableTag v3 = v2.replace(path, SDL.tag("server").withValue(SDL.value("backup")).build());
+ * </pre>
+ *
+ * @since 2.1.1
+ */
+public final class ImmutableTag extends Tag {
+
+    private static final long serialVersionUID = 2404337052212391146L;
+
+    private final int hash;
+
+    private ImmutableTag(@NotNull final Tag source, @NotNull final List<ImmutableTag> children) {
+        super(source.getNamespace(), source.getName());
+        copyContentOf(source);
+        for(final ImmutableTag child : children) {
+            super.addChild(child);
+        }
+        this.hash = super.hashCode();
+    }
+
+    /**
+     * Freeze a tree without recursion, children are frozen before their parent so that their
+     * hash codes are ready when the parent's is worked out.
+     */
+    static ImmutableTag copyOf(@NotNull final Tag tag) {
+        if(tag instanceof ImmutableTag) {
+            return (ImmutableTag) tag;
+        }
+
+        final Deque<Frozen> open = new ArrayDeque<>();
+        open.push(new Frozen(tag));
+
+        while(true) {
+            final Frozen frozen = open.peek();
+            final List<Tag> children = frozen.source.getChildren();
+
+            if(frozen.next < children.size()) {
+                final Tag child = children.get(frozen.next++);
+                if(child instanceof ImmutableTag) {
+                    frozen.children.add((ImmutableTag) child);
+                } else {
+                    open.push(new Frozen(child));
+                }
+            } else {
+                open.pop();
+                final ImmutableTag result = new ImmutableTag(frozen.source, frozen.children);
+                if(open.isEmpty()) {
+                    return result;
+                }
+                open.peek().children.add(result);
+            }
+        }
+    }
+
+    @Override
+    public ImmutableTag freeze() {
+        return this;
+    }
+
+    /**
+     * @param value a value to add after the existing values
+     * @return a copy of this tag with the extra value, sharing the same children
+     */
+    public ImmutableTag withValue(@NotNull final SdlValue value) {
+        return derive(t -> t.addValue(value), children());
+    }
+
+    /**
+     * @param key the key of the attribute to add or replace
+     * @param value the attribute value
+     * @return a copy of this tag with the attribute set, sharing the same children
+     */
+    public ImmutableTag withAttribute(@NotNull final String key, @NotNull final SdlValue value) {
+        return withAttribute("", key, value);
+    }
+
+    /**
+     * @param namespace the namespace of the attribute
+     * @param key the key of the attribute to add or replace
+     * @param value the attribute value
+     * @return a copy of this tag with the attribute set, sharing the same children
+     */
+    public ImmutableTag withAttribute(@Nullable final String namespace, @NotNull final String key, @NotNull final SdlValue value) {
+        return derive(t -> t.setAttribute(namespace, key, value), children());
+    }
+
+    /**
+     * @param child a tag to add after the existing children, it is frozen if it isn't already
+     * @return a copy of this tag with the extra child, sharing the existing children
+     */
+    public ImmutableTag withChild(@NotNull final Tag child) {
+        final List<ImmutableTag> children = new ArrayList<>(children());
+        children.add(child.freeze());
+        return derive(t -> {}, children);
+    }
+
+    /**
+     * @param index the position of the child to replace
+     * @param child the new child, it is frozen if it isn't already
+     * @return a copy of this tag with the child replaced, sharing the other children
+     * @throws IndexOutOfBoundsException if there is no child at the index
+     */
+    public ImmutableTag withChild(final int index, @NotNull final Tag child) {
+        final List<ImmutableTag> children = new ArrayList<>(children());
+        children.set(index, child.freeze());
+        return derive(t -> {}, children);
+    }
+
+    /**
+     * @param index the position of the child to remove
+     * @return a copy of this tag without the child, sharing the other children
+     * @throws IndexOutOfBoundsException if there is no child at the index
+     */
+    public ImmutableTag withoutChild(final int index) {
+        final List<ImmutableTag> children = new ArrayList<>(children());
+        children.remove(index);
+        return derive(t -> {}, children);
+    }
+
+    /**
+     * Replace a descendant of this tag, copying only the tags between this one and the
+     * descendant. Every other tag in the tree is shared with the result.
+     *
+     * <p>The descendant is found with {@link #pathTo(ImmutableTag)}, which searches the tree so
+     * takes time in proportion to its size. When the same place is changed repeatedly keep the
+     * path and use {@link #replace(int[], Tag)} instead.</p>
+     *
+     * @param existing a descendant of this tag (or this tag itself), matched by identity
+     * @param replacement the tag to put in its place, it is frozen if it isn't already
+     * @return the new root of the tree, or this tag unchanged if existing is not found
+     */
+    public ImmutableTag replace(@NotNull final ImmutableTag existing, @NotNull final Tag replacement) {
+        final int[] path = pathTo(existing);
+        return path != null ? replace(path, replacement) : this;
+    }
+
+    /**
+     * Replace the descendant found by following a path of child indexes down from this tag.
+     * Only the tags on the path are copied, so the cost grows with the depth of the path and
+     * the number of children of each tag along it rather than with the size of the tree.
+     *
+     * @param path the index of each child on the way down, an empty path replaces this tag
+     * @param replacement the tag to put in its place, it is frozen if it isn't already
+     * @return the new root of the tree
+     * @throws IndexOutOfBoundsException if there is no child at one of the indexes
+     */
+    public ImmutableTag replace(@NotNull final int[] path, @NotNull final Tag replacement) {
+        final ImmutableTag[] ancestors = new ImmutableTag[path.length];
+        ImmutableTag tag = this;
+        for(int depth = 0; depth < path.length; depth++) {
+            ancestors[depth] = tag;
+            tag = tag.children().get(path[depth]);
+        }
+
+        ImmutableTag result = replacement.freeze();
+        for(int depth = path.length - 1; depth >= 0; depth--) {
+            result = ancestors[depth].withChild(path[depth], result);
+        }
+        return result;
+    }
+
+    /**
+     * Find where a descendant is in this tree, for use with {@link #replace(int[], Tag)}. The
+     * whole tree may be searched, depth first.
+     *
+     * @param descendant a descendant of this tag (or this tag itself), matched by identity
+     * @return the index of each child on the way down to the descendant, which is empty for this
+     *     tag itself, or null if it is not found
+     */
+    @Nullable
+    public int[] pathTo(@NotNull final ImmutableTag descendant) {
+        if(descendant == this) {
+            return new int[0];
+        }
+
+        // each entry is a tag on the path along with the index of its child that is being searched
+        final Deque<ImmutableTag> path = new ArrayDeque<>();
+        final Deque<int[]> indexes = new ArrayDeque<>();
+        path.push(this);
+        indexes.push(new int[] {-1});
+
+        while(!path.isEmpty()) {
+            final List<ImmutableTag> children = path.peek().children();
+            final int[] index = indexes.peek();
+
+            if(++index[0] >= children.size()) {
+                path.pop();
+                indexes.pop();
+                continue;
+            }
+
+            final ImmutableTag child = children.get(index[0]);
+            if(child == descendant) {
+                final int[] result = new int[indexes.size()];
+                int depth = result.length;
+                for(final int[] i : indexes) {
+                    // the deque iterates from the deepest entry
+                    result[--depth] = i[0];
+                }
+                return result;
+            }
+            if(!child.getChildren().isEmpty()) {
+                path.push(child);
+                indexes.push(new int[] {-1});
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the children, which are all immutable
+     */
+    @SuppressWarnings("unchecked")
+    private List<ImmutableTag> children() {
+        return (List<ImmutableTag>) (List<? extends Tag>) getChildren();
+    }
+
+    /**
+     * Create a new immutable tag from a shallow copy of this one
+     */
+    private ImmutableTag derive(final Consumer<Tag> change, final List<ImmutableTag> children) {
+        final Tag copy = new Tag(getNamespace(), getName());
+        copy.copyContentOf(this);
+        change.accept(copy);
+        return new ImmutableTag(copy, children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(this == o) return true;
+        if(o instanceof ImmutableTag && ((ImmutableTag) o).hash != hash) return false;
+        return super.equals(o);
+    }
+
+    @Override
+    public void addChild(final Tag child) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean removeChild(final Tag child) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setValue(final SdlValue value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addValue(final SdlValue value) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean removeValue(final SdlValue value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setAttribute(final String key, final SdlValue value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setAttribute(final String namespace, final String key, final SdlValue value) {
+        throw unsupported();
+    }
+
+    @Override
+    public Object removeAttribute(final String attributeKey) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setAttributes(final Map<String, SdlValue> attributes) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setComment(final String comment) {
+        throw unsupported();
+    }
+
+    @Override
+    public Tag read(final URL url) {
+        throw unsupported();
+    }
+
+    @Override
+    public Tag read(final File file) {
+        throw unsupported();
+    }
+
+    @Override
+    public Tag read(final String text) {
+        throw unsupported();
+    }
+
+    @Override
+    public Tag read(@NotNull final Reader reader) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("ImmutableTag cannot be modified");
+    }
+
+    /**
+     * A tag that is being frozen along with its children that have been frozen so far
+     */
+    private static final class Frozen {
+        private final Tag source;
+        private final List<ImmutableTag> children = new ArrayList<>();
+        private int next;
+
+        private Frozen(final Tag source) {
+            this.source = source;
+        }
+    }
+}
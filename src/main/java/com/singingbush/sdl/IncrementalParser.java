@@ -0,0 +1,200 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>A parser that is given its input a piece at a time rather than reading from a blocking
+ * {@link java.io.Reader}, which suits input arriving over a non-blocking channel. Chunks can be
+ * split anywhere, including part way through a multi-line string, a comment, a binary literal
+ * or a multi-byte UTF-8 character. Each call to {@code feed} returns the top level tags (along
+ * with their children) that have been completed by that chunk.</p>
+ *
+ * <pre>
+ * IncrementalParser parser = new IncrementalParser();
+ * while(channel.read(buffer) != -1) {
+ *     buffer.flip();
+ *     parser.feed(buffer).forEach(this::process);
+ *     buffer.compact();
+ * }
+ * parser.finish().forEach(this::process);
+ * </pre>
+ *
+ * <p>An IncrementalParser is not thread safe.</p>
+ *
+ * @since 2.1.1
+ */
+public class IncrementalParser {
+
+    private final BoundaryScanner scanner = new BoundaryScanner();
+    private final StringBuilder pending = new StringBuilder();
+    private final CharsetDecoder decoder = UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private final CharBuffer decoded = CharBuffer.allocate(8192);
+    private final SymbolTable symbols = new SymbolTable();
+
+    private ByteBuffer partial;
+    private int lineOffset;
+    private int complete;
+    private boolean finished;
+
+    /**
+     * Add UTF-8 encoded input. All of the remaining bytes in the buffer are consumed, an
+     * incomplete character at the end is held back until the rest of it arrives.
+     *
+     * @param bytes the next chunk of UTF-8 encoded SDL
+     * @return the top level tags completed by this chunk, possibly empty
+     * @throws SDLParseException If the document is malformed
+     */
+    @NotNull
+    public List<Tag> feed(@NotNull final ByteBuffer bytes) throws SDLParseException {
+        checkNotFinished();
+
+        ByteBuffer in = bytes;
+        if(partial != null) {
+            in = ByteBuffer.allocate(partial.remaining() + bytes.remaining());
+            in.put(partial).put(bytes).flip();
+            partial = null;
+        }
+
+        decode(in, false);
+
+        if(in.hasRemaining()) {
+            partial = ByteBuffer.allocate(in.remaining());
+            partial.put(in).flip();
+        }
+        return completedTags();
+    }
+
+    /**
+     * Add input that has already been decoded. All of the remaining characters in the buffer are consumed.
+     *
+     * @param chars the next chunk of SDL
+     * @return the top level tags completed by this chunk, possibly empty
+     * @throws SDLParseException If the document is malformed
+     */
+    @NotNull
+    public List<Tag> feed(@NotNull final CharBuffer chars) throws SDLParseException {
+        checkNotFinished();
+        scan(chars);
+        return completedTags();
+    }
+
+    /**
+     * Add input that has already been decoded.
+     *
+     * @param chars the next chunk of SDL
+     * @return the top level tags completed by this chunk, possibly empty
+     * @throws SDLParseException If the document is malformed
+     */
+    @NotNull
+    public List<Tag> feed(@NotNull final CharSequence chars) throws SDLParseException {
+        return feed(CharBuffer.wrap(chars));
+    }
+
+    /**
+     * Signal the end of the input. No more input can be fed after this.
+     *
+     * @return any top level tags completed by the end of the input, possibly empty
+     * @throws SDLParseException If the document is malformed or ends part way through a tag
+     */
+    @NotNull
+    public List<Tag> finish() throws SDLParseException {
+        checkNotFinished();
+        finished = true;
+
+        final ByteBuffer in = partial != null ? partial : ByteBuffer.allocate(0);
+        partial = null;
+        decode(in, true);
+        if(decoder.flush(decoded).isOverflow()) {
+            flushDecoded();
+            decoder.flush(decoded);
+        }
+        flushDecoded();
+
+        complete = pending.length();
+        return completedTags();
+    }
+
+    /**
+     * @return true if the input so far ends between top level tags
+     */
+    public boolean isBetweenTags() {
+        return scanner.isBetweenTags() && partial == null;
+    }
+
+    private void decode(final ByteBuffer in, final boolean endOfInput) throws SDLParseException {
+        while(true) {
+            final CoderResult result = decoder.decode(in, decoded, endOfInput);
+            flushDecoded();
+            if(result.isError()) {
+                throw new SDLParseException("Malformed UTF-8 input", scanner.getLines() + 1, -1);
+            }
+            if(result.isUnderflow()) {
+                return;
+            }
+        }
+    }
+
+    private void flushDecoded() {
+        decoded.flip();
+        scan(decoded);
+        decoded.clear();
+    }
+
+    private void scan(final CharBuffer chars) {
+        final int start = pending.length();
+        pending.append(chars);
+        for(int i = start, end = pending.length(); i < end; i++) {
+            if(scanner.accept(pending.charAt(i))) {
+                complete = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Parse everything up to the end of the last completed top level tag
+     */
+    private List<Tag> completedTags() throws SDLParseException {
+        if(complete == 0) {
+            return Collections.emptyList();
+        }
+
+        final String text = pending.substring(0, complete);
+        pending.delete(0, complete);
+        complete = 0;
+
+        final Parser parser = new Parser(new LineSource.StringSource(text), lineOffset).withSymbolTable(symbols);
+        int lines = 0;
+        for(int i = 0; i < text.length(); i++) {
+            if(text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        lineOffset += lines;
+
+        try {
+            return parser.parse();
+        } catch(final IOException e) {
+            // not possible with a StringReader
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void checkNotFinished() {
+        if(finished) {
+            throw new IllegalStateException("finish() has already been called");
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Where the {@link Parser} gets its lines from. Lines are ended by '\n', '\r' or "\r\n" in
+ * the same way as {@link BufferedReader#readLine()}.
+ *
+ * @since 2.1.1
+ */
+interface LineSource extends Closeable {
+
+    /**
+     * @return the next line without its line ending or null at the end of the input
+     * @throws IOException If a problem is encountered reading the input
+     */
+    @Nullable
+    String readLine() throws IOException;
+
+    /**
+     * Lines read from a {@link Reader}
+     */
+    final class ReaderSource implements LineSource {
+        private final BufferedReader reader;
+
+        ReaderSource(@NotNull final Reader reader) {
+            this.reader = (reader instanceof BufferedReader)
+                ? ((BufferedReader)reader)
+                : new BufferedReader(reader);
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            return reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Lines taken straight out of a String without copying it through a Reader
+     */
+    final class StringSource implements LineSource {
+        private final String text;
+        private int pos;
+
+        StringSource(@NotNull final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String readLine() {
+            final int length = text.length();
+            if(pos >= length) {
+                return null;
+            }
+            final int start = pos;
+            int i = start;
+            char c = 0;
+            while(i < length && (c = text.charAt(i)) != '\n' && c != '\r') {
+                i++;
+            }
+            final String line = text.substring(start, i);
+            pos = skipLineEnding(i, c);
+            return line;
+        }
+
+        private int skipLineEnding(int i, final char c) {
+            if(i < text.length()) {
+                i++;
+                if(c == '\r' && i < text.length() && text.charAt(i) == '\n') {
+                    i++;
+                }
+            }
+            return i;
+        }
+
+        @Override
+        public void close() {
+            pos = text.length();
+        }
+    }
+
+    /**
+     * <p>Lines decoded straight from UTF-8 bytes. The line endings are found by scanning the bytes
+     * (they can't appear inside a multi-byte UTF-8 sequence) and each line is then decoded in
+     * one step. Lines that are entirely ASCII, which is most lines in most files, take the
+     * cheaper single byte path.</p>
+     *
+     * <p>Reading starts at the buffer's position and stops at its limit, the position is moved
+     * as lines are read.</p>
+     */
+    final class Utf8Source implements LineSource {
+        private final ByteBuffer buffer;
+        private final ByteBuffer view;
+        private byte[] scratch;
+
+        Utf8Source(@NotNull final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.view = buffer.hasArray() ? null : buffer.duplicate();
+        }
+
+        @Override
+        public String readLine() {
+            return readLine(true);
+        }
+
+        /**
+         * @param endOfInput false if there is more input after the buffer's limit, in which case
+         *     a line with no line ending (or one ending in '\r' that could be followed by '\n')
+         *     is left unread
+         * @return the next line or null if there isn't a complete line left in the buffer
+         */
+        @Nullable
+        String readLine(final boolean endOfInput) {
+            final int limit = buffer.limit();
+            final int start = buffer.position();
+            if(start >= limit) {
+                return null;
+            }
+
+            boolean ascii = true;
+            int i = start;
+            byte b = 0;
+            for(; i < limit; i++) {
+                b = buffer.get(i);
+                if(b == '\n' || b == '\r') {
+                    break;
+                } else if(b < 0) {
+                    ascii = false;
+                }
+            }
+
+            if(!endOfInput && (i >= limit - 1 && (i == limit || b == '\r'))) {
+                return null;
+            }
+
+            final String line = decode(start, i - start, ascii);
+
+            if(i < limit) {
+                i++;
+                if(b == '\r' && i < limit && buffer.get(i) == '\n') {
+                    i++;
+                }
+            }
+            buffer.position(i);
+            return line;
+        }
+
+        private String decode(final int start, final int length, final boolean ascii) {
+            if(length == 0) {
+                return "";
+            }
+            final byte[] bytes;
+            final int offset;
+            if(view == null) {
+                bytes = buffer.array();
+                offset = buffer.arrayOffset() + start;
+            } else {
+                if(scratch == null || scratch.length < length) {
+                    scratch = new byte[Math.max(length, 256)];
+                }
+                view.limit(start + length).position(start);
+                view.get(scratch, 0, length);
+                bytes = scratch;
+                offset = 0;
+            }
+            // ASCII is a subset of both, ISO-8859-1 decoding is a straight copy
+            return new String(bytes, offset, length, ascii ? ISO_8859_1 : UTF_8);
+        }
+
+        @Override
+        public void close() {
+            buffer.position(buffer.limit());
+        }
+    }
+
+    /**
+     * <p>Lines read from a memory mapped file. The file is mapped a window at a time so that
+     * files larger than a single {@link MappedByteBuffer} can hold are supported, a line
+     * that runs past the end of a window causes the next window to start with that line.</p>
+     */
+    final class MappedSource implements LineSource {
+        static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long size;
+        private final int windowSize;
+        private long windowStart;
+        private long windowEnd;
+        private Utf8Source window;
+
+        MappedSource(@NotNull final FileChannel channel, final int windowSize) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.windowSize = windowSize;
+            map(0, windowSize);
+        }
+
+        private void map(final long start, final long length) throws IOException {
+            windowStart = start;
+            windowEnd = Math.min(size, start + length);
+            window = new Utf8Source(channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart));
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            while(true) {
+                final boolean last = windowEnd == size;
+                final String line = window.readLine(last);
+                if(line != null || last) {
+                    return line;
+                }
+                // the line continues past this window, start the next window with it
+                final long lineStart = windowStart + window.buffer.position();
+                if(windowEnd - lineStart >= Integer.MAX_VALUE) {
+                    // the window already holds as much as a single mapping can
+                    throw new IOException("Line starting at byte " + lineStart + " is too long to read");
+                }
+                final long length = windowEnd - lineStart < windowSize
+                    ? windowSize
+                    : Math.min(Integer.MAX_VALUE, 2 * (windowEnd - lineStart));
+                map(lineStart, length);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
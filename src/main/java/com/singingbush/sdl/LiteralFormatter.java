@@ -0,0 +1,307 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Writes SDL literals straight into an {@link Appendable}. Digits are emitted by hand rather
+ * than through {@link DateTimeFormatter} or {@link String#format}, so formatting a number,
+ * date, time span or binary value creates no intermediate Strings. Values the hand written
+ * code does not cover, such as dates before year 1, go through formatters that are created
+ * once and shared.
+ *
+ * @since 2.1.1
+ */
+final class LiteralFormatter {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern(SDL.DATE_FORMAT);
+
+    private static final DateTimeFormatter LOCAL_DATE_TIME = DateTimeFormatter.ofPattern("y/M/d H:m:s.SSS");
+
+    // the locale is needed to force the zone to render as its short version
+    private static final DateTimeFormatter ZONED_DATE_TIME = DateTimeFormatter
+        .ofPattern(SDL.DATE_TIME_FORMAT)
+        .withLocale(Locale.ENGLISH);
+
+    private static final DateTimeFormatter ZONE = DateTimeFormatter.ofPattern("z").withLocale(Locale.ENGLISH);
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private LiteralFormatter() {
+    }
+
+    /**
+     * Write a value as it would be returned by {@link SdlValue#getText()}
+     */
+    static void append(@NotNull final Appendable out, @NotNull final SdlType type, @Nullable final Object value) throws IOException {
+        switch (type) {
+            case STRING:
+                appendString(out, String.valueOf(value));
+                return;
+            case STRING_MULTILINE:
+                out.append('`').append(String.valueOf(value)).append('`');
+                return;
+            case CHARACTER:
+                appendCharacter(out, (Character) value);
+                return;
+            case BOOLEAN:
+                out.append(String.valueOf(value));
+                return;
+            case NUMBER:
+                if(value instanceof Integer) {
+                    appendLong(out, (Integer) value);
+                    return;
+                } else if(value instanceof Long) {
+                    appendLong(out, (Long) value);
+                    out.append('L');
+                    return;
+                } else if(value instanceof Float) {
+                    appendFloat(out, (Float) value);
+                    return;
+                } else if(value instanceof BigDecimal) {
+                    out.append(value.toString()).append("BD");
+                    return;
+                }
+                break;
+            case DATE:
+                appendDate(out, (LocalDate) value);
+                return;
+            case DATETIME:
+                if(value instanceof LocalDateTime) {
+                    appendDateTime(out, (LocalDateTime) value);
+                    return;
+                } else if(value instanceof ZonedDateTime) {
+                    appendDateTime(out, (ZonedDateTime) value);
+                    return;
+                }
+                break;
+            case DURATION:
+                appendDuration(out, (Duration) value);
+                return;
+            case BINARY:
+                appendBinary(out, (byte[]) value);
+                return;
+            case NULL:
+                out.append("null");
+                return;
+        }
+        out.append(String.valueOf(value)); // shouldn't happen
+    }
+
+    static void appendString(@NotNull final Appendable out, @NotNull final String s) throws IOException {
+        out.append('"');
+        // runs of characters that need no escaping are written in one go
+        int start = 0;
+        final int size = s.length();
+        for(int i = 0; i < size; i++) {
+            final String escaped;
+            switch(s.charAt(i)) {
+                case '\\': escaped = "\\\\"; break;
+                case '"': escaped = "\\\""; break;
+                case '\t': escaped = "\\t"; break;
+                case '\r': escaped = "\\r"; break;
+                case '\n': escaped = "\\n"; break;
+                default: continue;
+            }
+            out.append(s, start, i).append(escaped);
+            start = i + 1;
+        }
+        out.append(s, start, size).append('"');
+    }
+
+    static void appendCharacter(@NotNull final Appendable out, final char c) throws IOException {
+        out.append('\'');
+        switch(c) {
+            case '\\': out.append("\\\\"); break;
+            case '\'': out.append("\\'"); break;
+            case '\t': out.append("\\t"); break;
+            case '\r': out.append("\\r"); break;
+            case '\n': out.append("\\n"); break;
+            default: out.append(c);
+        }
+        out.append('\'');
+    }
+
+    static void appendLong(@NotNull final Appendable out, final long value) throws IOException {
+        if(out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+            return;
+        }
+        if(value == Long.MIN_VALUE) {
+            out.append("-9223372036854775808");
+            return;
+        }
+
+        long remaining = value;
+        if(remaining < 0) {
+            out.append('-');
+            remaining = -remaining;
+        }
+        long divisor = 1;
+        while(divisor <= remaining / 10) {
+            divisor *= 10;
+        }
+        for(; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + remaining / divisor % 10));
+        }
+    }
+
+    static void appendFloat(@NotNull final Appendable out, final float value) throws IOException {
+        if(out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+        } else {
+            out.append(Float.toString(value));
+        }
+        out.append('F');
+    }
+
+    static void appendDouble(@NotNull final Appendable out, final double value) throws IOException {
+        if(out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+        } else {
+            out.append(Double.toString(value));
+        }
+    }
+
+    static void appendDate(@NotNull final Appendable out, @NotNull final LocalDate date) throws IOException {
+        if(date.getYear() < 1) {
+            // "y" is the year of era
+            DATE.formatTo(date, out);
+            return;
+        }
+        appendDate(out, date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    static void appendDateTime(@NotNull final Appendable out, @NotNull final LocalDateTime dateTime) throws IOException {
+        if(dateTime.getYear() < 1) {
+            LOCAL_DATE_TIME.formatTo(dateTime, out);
+            return;
+        }
+        appendDate(out, dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        appendTime(out, dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond(), dateTime.getNano());
+    }
+
+    static void appendDateTime(@NotNull final Appendable out, @NotNull final ZonedDateTime dateTime) throws IOException {
+        if(dateTime.getYear() < 1) {
+            ZONED_DATE_TIME.formatTo(dateTime, out);
+            return;
+        }
+        appendDate(out, dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        appendTime(out, dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond(), dateTime.getNano());
+        out.append('-');
+        ZONE.formatTo(dateTime, out);
+    }
+
+    private static void appendDate(final Appendable out, final int year, final int month, final int day) throws IOException {
+        appendLong(out, year);
+        out.append('/');
+        appendSmall(out, month);
+        out.append('/');
+        appendSmall(out, day);
+    }
+
+    private static void appendTime(final Appendable out, final int hour, final int minute, final int second, final int nano) throws IOException {
+        out.append(' ');
+        appendSmall(out, hour);
+        out.append(':');
+        appendSmall(out, minute);
+        out.append(':');
+        appendSmall(out, second);
+        out.append('.');
+        appendMillis(out, nano / 1_000_000);
+    }
+
+    /**
+     * Write a time span as days, hours, minutes, seconds and milliseconds such as <code>2d:03:30:00.500</code>
+     */
+    static void appendDuration(@NotNull final Appendable out, @NotNull final Duration duration) throws IOException {
+        long days = duration.toDays();
+        final long hours = days == 1L && duration.toHours() == 24L ? 24L : duration.toHours() % 24;
+        if(hours == 24L) {
+            days = 0L;
+        }
+        final long minutes = duration.toMinutes() % 60L;
+        final long seconds = duration.toMillis() % 60_000L / 1000;
+        final long milliseconds = duration.toMillis() % 1_000L;
+
+        if(days != 0) {
+            appendLong(out, days);
+            out.append("d:");
+            appendPadded(out, Math.abs(hours));
+        } else {
+            appendPadded(out, hours);
+        }
+        out.append(':');
+        appendPadded(out, Math.abs(minutes));
+        out.append(':');
+        appendPadded(out, Math.abs(seconds));
+
+        if(milliseconds != 0) {
+            out.append('.');
+            appendMillis(out, (int) Math.abs(milliseconds));
+        }
+    }
+
+    /**
+     * Write bytes as standard base64 within square brackets
+     */
+    static void appendBinary(@NotNull final Appendable out, @NotNull final byte[] bytes) throws IOException {
+        out.append('[');
+        final int whole = bytes.length - bytes.length % 3;
+        int i = 0;
+        for(; i < whole; i += 3) {
+            final int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+            out.append(BASE64[bits >>> 18])
+                .append(BASE64[bits >>> 12 & 0x3f])
+                .append(BASE64[bits >>> 6 & 0x3f])
+                .append(BASE64[bits & 0x3f]);
+        }
+        if(i < bytes.length) {
+            final boolean two = i + 1 < bytes.length;
+            final int bits = (bytes[i] & 0xff) << 16 | (two ? (bytes[i + 1] & 0xff) << 8 : 0);
+            out.append(BASE64[bits >>> 18])
+                .append(BASE64[bits >>> 12 & 0x3f])
+                .append(two ? BASE64[bits >>> 6 & 0x3f] : '=')
+                .append('=');
+        }
+        out.append(']');
+    }
+
+    /**
+     * Write a value from 0 to 99 without padding
+     */
+    private static void appendSmall(final Appendable out, final int value) throws IOException {
+        if(value >= 10) {
+            out.append((char) ('0' + value / 10));
+        }
+        out.append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Write a value padded to at least two digits, a negative value is written as "-0" followed by the digit
+     */
+    private static void appendPadded(final Appendable out, final long value) throws IOException {
+        if(value > -10 && value < 0) {
+            out.append("-0").append((char) ('0' - value));
+        } else if(value > -1 && value < 10) {
+            out.append('0').append((char) ('0' + value));
+        } else {
+            appendLong(out, value);
+        }
+    }
+
+    private static void appendMillis(final Appendable out, final int millis) throws IOException {
+        out.append((char) ('0' + millis / 100))
+            .append((char) ('0' + millis / 10 % 10))
+            .append((char) ('0' + millis % 10));
+    }
+}
@@ -0,0 +1,132 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Parses a UTF-8 document on several threads. A quick scan using {@link BoundaryScanner}
+ * finds where top level tags end, the document is then cut at those points into segments of
+ * roughly equal size which are parsed concurrently. Each segment's parser is told how many
+ * lines come before it so that errors carry the line number within the whole document.</p>
+ *
+ * <p>The scan works on the raw bytes. Every byte of a multi-byte UTF-8 sequence is outside
+ * of the ASCII range so can never be mistaken for a quote, brace or line ending, and the
+ * scanner counts each one as part of a token so that a following "--" is not taken for the
+ * start of a comment.</p>
+ *
+ * @since 2.1.1
+ */
+final class ParallelParser {
+
+    /** below this there is little to gain from splitting the work */
+    static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    /**
+     * Provides the bytes of part of the document
+     */
+    private interface Segments {
+        ByteBuffer get(long start, long end) throws IOException;
+    }
+
+    private final BoundaryScanner scanner = new BoundaryScanner();
+    private final List<long[]> segments = new ArrayList<>();
+    private final long segmentSize;
+    private long segmentStart;
+    private int segmentLine;
+
+    private ParallelParser(final long size, final ForkJoinPool pool, final int minSegmentSize) {
+        this.segmentSize = Math.max(minSegmentSize, size / (pool.getParallelism() * 4L));
+    }
+
+    static List<Tag> parse(@NotNull final ByteBuffer utf8, @NotNull final ForkJoinPool pool, final int minSegmentSize) throws IOException, SDLParseException {
+        final ByteBuffer buffer = utf8.slice();
+        final ParallelParser parser = new ParallelParser(buffer.remaining(), pool, minSegmentSize);
+        parser.scan(buffer, 0);
+        return parser.parseSegments(buffer.remaining(), pool, (start, end) -> {
+            final ByteBuffer segment = buffer.duplicate();
+            segment.limit((int) end);
+            segment.position((int) start);
+            return segment;
+        });
+    }
+
+    static List<Tag> parse(@NotNull final FileChannel channel, @NotNull final ForkJoinPool pool, final int minSegmentSize) throws IOException, SDLParseException {
+        final long size = channel.size();
+        final ParallelParser parser = new ParallelParser(size, pool, minSegmentSize);
+        for(long start = 0; start < size; start += LineSource.MappedSource.WINDOW_SIZE) {
+            parser.scan(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(LineSource.MappedSource.WINDOW_SIZE, size - start)), start);
+        }
+        return parser.parseSegments(size, pool, (start, end) -> channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+    }
+
+    /**
+     * Find the top level tag boundaries in part of the document
+     *
+     * @param window the bytes to scan, from position 0 to the limit
+     * @param offset the position of the window within the document
+     */
+    private void scan(final ByteBuffer window, final long offset) {
+        for(int i = 0, limit = window.limit(); i < limit; i++) {
+            if(scanner.accept((char) (window.get(i) & 0xFF))) {
+                final long end = offset + i + 1;
+                if(end - segmentStart >= segmentSize) {
+                    segments.add(new long[] {segmentStart, end, segmentLine});
+                    segmentStart = end;
+                    segmentLine = scanner.getLines();
+                }
+            }
+        }
+    }
+
+    private List<Tag> parseSegments(final long size, final ForkJoinPool pool, final Segments source) throws IOException, SDLParseException {
+        if(segmentStart < size) {
+            segments.add(new long[] {segmentStart, size, segmentLine});
+        }
+
+        // segments share one symbol table so that each name in the document is held once
+        final SymbolTable symbols = new SymbolTable();
+        final List<Callable<List<Tag>>> tasks = new ArrayList<>(segments.size());
+        for(final long[] segment : segments) {
+            tasks.add(() -> new Parser(new LineSource.Utf8Source(source.get(segment[0], segment[1])), (int) segment[2])
+                .withSymbolTable(symbols)
+                .parse());
+        }
+
+        final List<Tag> tags = new ArrayList<>();
+        // results are collected in document order so the first error in the document is the one reported
+        for(final Future<List<Tag>> result : pool.invokeAll(tasks)) {
+            try {
+                tags.addAll(result.get());
+            } catch(final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while parsing", e);
+            } catch(final ExecutionException e) {
+                // the pool wraps checked exceptions thrown by a task in a RuntimeException
+                for(Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                    if(cause instanceof SDLParseException) {
+                        throw (SDLParseException) cause;
+                    } else if(cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                }
+                final Throwable cause = e.getCause();
+                if(cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if(cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return tags;
+    }
+}
@@ -21,10 +21,17 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -35,27 +42,25 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class Parser {
 
-    private static final String DATE_REGEX = "(\\d+\\/\\d+\\/\\d+)";
-    private static final String TIME_REGEX = "(\\d+:\\d+(:\\d+)?(.\\d+)?)(-\\w+)?";
-    static final String DATETIME_REGEX = DATE_REGEX + " " + TIME_REGEX;
-    static final String TIMESPAN_REGEX = "-?(\\d+d:)?(\\d+:\\d+:\\d+)(.\\d+)?";
-
-    private final BufferedReader reader;
+    private final LineSource source;
 	private String line;
 	private List<Token> toks;
 	private StringBuilder sb;
 	private boolean startEscapedQuoteLine;
 	private int lineNumber=-1, lineStart = 0, pos=0, lineLength=0, tokenStart=0;
     private boolean semicolonTerminated = false;
+    private SdlHandler handler;
+    private int depth = 0;
+    private int maxDepth = Integer.MAX_VALUE;
+    private boolean skipRequested;
+    private SymbolTable symbols;
 
 	/**
 	 * Create an SDL parser
      * @param reader A Reader for the SDL that should be parsed
 	 */
 	public Parser(@NotNull Reader reader) {
-		this.reader = (reader instanceof BufferedReader)
-			? ((BufferedReader)reader)
-			: new BufferedReader(reader);
+		this(new LineSource.ReaderSource(reader), 0);
 	}
 
 	/**
@@ -64,8 +69,37 @@ public class Parser {
 	 * @since 1.4.0
 	 */
 	public Parser(@NotNull final String sdlText) {
-		this(new StringReader(new String(sdlText.getBytes(), UTF_8)));
-		//this(new InputStreamReader(new ByteArrayInputStream(sdlText.getBytes())));
+		this(new LineSource.StringSource(sdlText), 0);
+	}
+
+	/**
+	 * Parse UTF-8 encoded SDL directly from bytes without going through a Reader
+	 * @param utf8 UTF-8 encoded SDL
+	 * @since 2.1.1
+	 */
+	public Parser(@NotNull final byte[] utf8) {
+		this(ByteBuffer.wrap(utf8));
+	}
+
+	/**
+	 * Parse UTF-8 encoded SDL directly from a buffer without going through a Reader.
+	 * Parsing starts at the buffer's position and ends at its limit.
+	 * @param utf8 UTF-8 encoded SDL
+	 * @since 2.1.1
+	 */
+	public Parser(@NotNull final ByteBuffer utf8) {
+		this(new LineSource.Utf8Source(utf8), 0);
+	}
+
+	/**
+	 * Create an SDL parser for part of a larger document
+	 * @param source Where the lines of SDL come from
+	 * @param lineOffset The number of lines in the document before those given by the source,
+	 *     used so that line numbers in errors refer to the whole document
+	 */
+	Parser(@NotNull final LineSource source, final int lineOffset) {
+		this.source = source;
+		this.lineNumber = lineOffset - 1;
 	}
 
 	/**
@@ -78,171 +112,359 @@ public class Parser {
 		this(new InputStreamReader(new FileInputStream(file), UTF_8));
 	}
 
+	/**
+	 * Limit how deeply tags can be nested. Nesting is handled without recursion so there is
+	 * no limit by default, setting one guards against documents that would use an
+	 * unreasonable amount of memory.
+	 * @param maxDepth The maximum number of nested blocks, 0 means tags can't have children
+	 * @return this parser
+	 * @since 2.1.1
+	 */
+	public Parser withMaxDepth(final int maxDepth) {
+		if(maxDepth < 0)
+			throw new IllegalArgumentException("maxDepth cannot be negative");
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Intern tag names, namespaces and attribute keys in the given table rather than one made
+	 * for this parser. Sharing a table between parsers means documents with the same
+	 * structure share the same Strings.
+	 * @param symbols The table to intern identifiers in
+	 * @return this parser
+	 * @since 2.1.1
+	 */
+	public Parser withSymbolTable(@NotNull final SymbolTable symbols) {
+		this.symbols = symbols;
+		return this;
+	}
+
+	/**
+	 * Parse a UTF-8 encoded file by memory mapping it rather than reading it through a
+	 * stream, which avoids copying the file's contents through several buffers. This is the
+	 * fastest way to parse large files, files bigger than 2GB are mapped a piece at a time.
+	 * @param path A UTF-8 encoded .sdl file
+	 * @return A parser for the file, the file is closed once parsing completes
+	 * @throws IOException If the file cannot be opened or mapped
+	 * @since 2.1.1
+	 */
+	public static Parser fromPath(@NotNull final Path path) throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new Parser(new LineSource.MappedSource(channel, LineSource.MappedSource.WINDOW_SIZE), 0);
+		} catch(final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Parse a large UTF-8 encoded file using all the threads of the common {@link ForkJoinPool}.
+	 * The file is split into pieces at the ends of top level tags and the pieces are parsed
+	 * concurrently, the result is the same as {@link #parse()} would give.
+	 * @param path A UTF-8 encoded .sdl file
+	 * @return A list of tags described by the file
+	 * @throws IOException If a problem is encountered reading the file
+	 * @throws SDLParseException If the document is malformed
+	 * @since 2.1.1
+	 */
+	public static List<Tag> parseParallel(@NotNull final Path path) throws IOException, SDLParseException {
+		return parseParallel(path, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parse a large UTF-8 encoded file using the threads of the given pool.
+	 * See {@link #parseParallel(Path)}
+	 * @param path A UTF-8 encoded .sdl file
+	 * @param pool The pool to parse on
+	 * @return A list of tags described by the file
+	 * @throws IOException If a problem is encountered reading the file
+	 * @throws SDLParseException If the document is malformed
+	 * @since 2.1.1
+	 */
+	public static List<Tag> parseParallel(@NotNull final Path path, @NotNull final ForkJoinPool pool) throws IOException, SDLParseException {
+		try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return ParallelParser.parse(channel, pool, ParallelParser.MIN_SEGMENT_SIZE);
+		}
+	}
+
+	/**
+	 * Parse a large UTF-8 encoded buffer using all the threads of the common {@link ForkJoinPool}.
+	 * See {@link #parseParallel(Path)}
+	 * @param utf8 UTF-8 encoded SDL from the buffer's position to its limit, the position is not changed
+	 * @return A list of tags described by the buffer
+	 * @throws SDLParseException If the document is malformed
+	 * @since 2.1.1
+	 */
+	public static List<Tag> parseParallel(@NotNull final ByteBuffer utf8) throws SDLParseException {
+		return parseParallel(utf8, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parse a large UTF-8 encoded buffer using the threads of the given pool.
+	 * See {@link #parseParallel(Path)}
+	 * @param utf8 UTF-8 encoded SDL from the buffer's position to its limit, the position is not changed
+	 * @param pool The pool to parse on
+	 * @return A list of tags described by the buffer
+	 * @throws SDLParseException If the document is malformed
+	 * @since 2.1.1
+	 */
+	public static List<Tag> parseParallel(@NotNull final ByteBuffer utf8, @NotNull final ForkJoinPool pool) throws SDLParseException {
+		try {
+			return ParallelParser.parse(utf8, pool, ParallelParser.MIN_SEGMENT_SIZE);
+		} catch(final IOException e) {
+			// only possible if interrupted
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/**
 	 * @return A list of tags described by the input
 	 * @throws IOException If a problem is encountered with the reader
 	 * @throws SDLParseException If the document is malformed
 	 */
     public List<Tag> parse() throws IOException, SDLParseException {
-		final List<Tag> tags = new ArrayList<>();
-		List<Token> toks;
-
-		while((toks=getLineTokens()) != null) {
-			int size = toks.size();
-
-			if(toks.get(size-1).getType()==SdlType.START_BLOCK) {
-				Tag t = constructTag(toks.subList(0, size-1));
-				addChildren(t);
-				tags.add(t);
-			} else if(toks.get(0).getType()==SdlType.END_BLOCK){
-				parseException("No opening block ({) for close block (}).", toks.get(0).getLine(), toks.get(0).getPosition());
-			} else {
-				List<Token> tokens = new ArrayList<>(size);
-				for (final Token t : toks) {
-					tokens.add(t);
-					if(SdlType.SEMICOLON.equals(t.getType())) {
-						tags.add(constructTag(tokens));
-						tokens = new ArrayList<>(size);
+		final TreeBuilder builder = new TreeBuilder();
+		parse(builder);
+		return builder.getTags();
+	}
+
+	/**
+	 * <p>Lazily parse the input. Each top level tag is made available (along with its children)
+	 * as soon as the line that completes it has been read, so only one top level tag is held
+	 * in memory at a time and short-circuiting operations such as {@code findFirst()} stop
+	 * reading early.</p>
+	 *
+	 * <p>The underlying reader is closed once the end of the input is reached or when the
+	 * stream is closed.</p>
+	 *
+	 * @return A sequential stream of the top level tags described by the input
+	 * @throws UncheckedIOException If a problem is encountered with the reader
+	 * @throws IllegalArgumentException If the document is malformed, the cause is
+	 *     the {@link SDLParseException} describing the problem
+	 * @since 2.1.1
+	 */
+	public Stream<Tag> stream() {
+		final TreeBuilder builder = new TreeBuilder();
+		return stream(builder, builder.getTags());
+	}
+
+	/**
+	 * <p>Lazily select the tags matching a path while parsing the input. Only the tags that
+	 * match, along with their children, are built into {@link Tag} objects. The body of any
+	 * other tag that the path can't match within is read past without being tokenized, so a
+	 * handful of tags can be pulled from a very large document quickly.</p>
+	 *
+	 * <p>The first step of the path is matched against the top level tags and the results are
+	 * the same, and in the same order, as {@link SdlPath#select(List)} over the whole document.
+	 * The underlying reader is closed once the end of the input is reached or when the stream
+	 * is closed.</p>
+	 *
+	 * @param path the compiled path to match
+	 * @return A sequential stream of the matching tags
+	 * @throws UncheckedIOException If a problem is encountered with the reader
+	 * @throws IllegalArgumentException If the document is malformed, the cause is
+	 *     the {@link SDLParseException} describing the problem
+	 * @since 2.1.1
+	 */
+	public Stream<Tag> stream(@NotNull final SdlPath path) {
+		final PathSelector selector = new PathSelector(path, this);
+		return stream(selector, selector.getTags());
+	}
+
+	/**
+	 * @param handler builds tags from the input
+	 * @param tags where the handler puts completed tags, these are removed as they're streamed
+	 */
+	private Stream<Tag> stream(final SdlHandler handler, final List<Tag> tags) {
+		final Spliterator<Tag> spliterator = new Spliterators.AbstractSpliterator<Tag>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			private boolean done;
+
+			@Override
+			public boolean tryAdvance(final Consumer<? super Tag> action) {
+				try {
+					while(tags.isEmpty() && !done) {
+						if(!next(handler)) {
+							done = true;
+							source.close();
+						}
 					}
+				} catch(final IOException e) {
+					throw new UncheckedIOException(e);
+				} catch(final SDLParseException e) {
+					throw new IllegalArgumentException(e.getMessage(), e);
 				}
-				if(!tokens.isEmpty()) {
-					tags.add(constructTag(tokens));
+				if(tags.isEmpty()) {
+					return false;
 				}
+				action.accept(tags.remove(0));
+				return true;
 			}
-		}
-
-		reader.close();
+		};
 
-		return tags;
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				source.close();
+			} catch(final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
 	}
 
-	private void addChildren(Tag parent) throws SDLParseException, IOException {
-		List<Token> toks;
-		while((toks=getLineTokens())!=null) {
-			int size = toks.size();
-
-			if(toks.get(0).getType()==SdlType.END_BLOCK) {
-				return;
-			} else if(toks.get(size-1).getType()==SdlType.START_BLOCK) {
-				Tag tag = constructTag(toks.subList(0, size-1));
-				addChildren(tag);
-				parent.addChild(tag);
-			} else {
-				parent.addChild(constructTag(toks));
-			}
+	/**
+	 * Parse the input without building any {@link Tag} objects. Each tag, value, attribute and
+	 * comment is passed to the handler as soon as it has been read.
+	 *
+	 * @param handler receives the contents of the document
+	 * @throws IOException If a problem is encountered with the reader
+	 * @throws SDLParseException If the document is malformed
+	 * @since 2.1.1
+	 */
+	public void parse(@NotNull final SdlHandler handler) throws IOException, SDLParseException {
+		while(next(handler)) {
+			// each call handles one logical line
 		}
-
-		// we have to use -2 for position rather than -1 for unknown because
-		// the parseException method adds 1 to line and position
-		parseException("No close block (}).", lineNumber, -2);
+		source.close();
 	}
 
 	/**
-	 * Construct a tag (but not its children) from a string of tokens
+	 * Read the next logical line and pass its contents to the handler. A line either opens a
+	 * tag, which is ended straight away unless the line finishes with '{', or closes the body
+	 * of the most recently opened tag.
 	 *
-	 * @throws SDLParseException
+	 * @param handler receives the contents of the line
+	 * @return false once the end of the input has been reached
+	 * @throws IOException If a problem is encountered with the reader
+	 * @throws SDLParseException If the document is malformed
 	 */
-	Tag constructTag(List<Token> toks) throws SDLParseException {
-	    if(lineNumber ==141) {
-	        int sdf=23;
-        }
-		if(toks.isEmpty())
-			// we have to use -2 for position rather than -1 for unknown because
-			// the parseException method adds 1 to line and position
-			parseException("Internal Error: Empty token list", lineNumber, -2);
+	boolean next(@NotNull final SdlHandler handler) throws IOException, SDLParseException {
+		this.handler = handler;
 
-		Token t0 = toks.get(0);
+		final List<Token> toks = getLineTokens();
 
+		if(toks == null) {
+			if(depth > 0) {
+				// we have to use -2 for position rather than -1 for unknown because
+				// the parseException method adds 1 to line and position
+				parseException("No close block (}).", lineNumber, -2);
+			}
+			return false;
+		}
 
-		if(t0.isLiteral()) {
-			toks.add(0, t0 = new Token("content", -1, -1));
-		} else if(!SdlType.IDENTIFIER.equals(t0.getType())) {
-			expectingButGot("IDENTIFIER", "" + t0.getType() + " (" + t0.getText() + ")",
-					t0.getLine(), t0.getPosition());
+		final int size = toks.size();
+		final Token t0 = toks.get(0);
+
+		if(t0.getType()==SdlType.END_BLOCK) {
+			if(depth == 0) {
+				parseException("No opening block ({) for close block (}).", t0.getLine(), t0.getPosition());
+			}
+			depth--;
+			handler.endTag();
+		} else if(toks.get(size-1).getType()==SdlType.START_BLOCK) {
+			readTag(handler, toks, size-1);
+			if(depth == maxDepth) {
+				parseException("Maximum depth of " + maxDepth + " nested blocks exceeded.", t0.getLine(), toks.get(size-1).getPosition());
+			}
+			depth++;
+			handler.startChildren();
+			if(skipRequested) {
+				skipRequested = false;
+				skipBlock();
+				depth--;
+				handler.endTag();
+			}
+		} else {
+			readTag(handler, toks, size);
+			handler.endTag();
 		}
+		return true;
+	}
 
-		int size = toks.size();
+	/**
+	 * Called by a handler from {@link SdlHandler#startChildren()} when it has no interest in the
+	 * children of the tag. If the body can be skipped the handler is next called with
+	 * {@link SdlHandler#endTag()}, otherwise the children are parsed as normal.
+	 */
+	void skipChildren() {
+		// a body that starts on a line split by ';' is left to the lexer
+		skipRequested = !semicolonTerminated;
+	}
 
-		Tag tag = null;
+	/**
+	 * Read past the body of the tag that has just been opened, up to and including the line
+	 * that closes it. Lines are only scanned for strings, comments and braces, not tokenized.
+	 */
+	private void skipBlock() throws IOException, SDLParseException {
+		final BoundaryScanner scanner = new BoundaryScanner(1);
+		do {
+			final String raw = readRawLine();
+			if(raw == null) {
+				parseException("No close block (}).", lineNumber, -2);
+				return;
+			}
+			for(int i = 0; i < raw.length(); i++) {
+				scanner.accept(raw.charAt(i));
+			}
+		} while(!scanner.accept('\n'));
+	}
 
-		if(size == 1) {
-			tag = new Tag(t0.getText());
-		} else {
-			int valuesStartIndex = 1;
+	/**
+	 * Pass a tag (but not its children) made from the first {@code size} tokens to the handler
+	 *
+	 * @throws SDLParseException
+	 */
+	private void readTag(final SdlHandler handler, final List<Token> toks, final int size) throws SDLParseException {
+		final Token t0 = toks.get(0);
 
-			final Token t1 = toks.get(1);
+		int i;
 
-			if(SdlType.COLON.equals(t1.getType())) {
+		if(t0.isLiteral()) {
+			handler.startTag("", "content");
+			i = 0;
+		} else if(SdlType.IDENTIFIER.equals(t0.getType())) {
+			if(size > 1 && SdlType.COLON.equals(toks.get(1).getType())) {
+				final Token t1 = toks.get(1);
 				if(size==2 || !SdlType.IDENTIFIER.equals(toks.get(2).getType())) {
                     parseException("Colon (:) encountered in unexpected location.", t1.getLine(), t1.getPosition());
                 }
-
-				Token t2 = toks.get(2);
-				tag = new Tag(t0.getText(), t2.getText());
-
-				valuesStartIndex = 3;
+				handler.startTag(t0.getText(), toks.get(2).getText());
+				i = 3;
 			} else {
-				tag = new Tag(t0.getText());
+				handler.startTag("", t0.getText());
+				i = 1;
 			}
-
-			// read values
-			int i = addTagValues(tag, toks, valuesStartIndex);
-
-			// read attributes
-			if(i<size) {
-                addTagAttributes(tag, toks, i);
-            }
+		} else {
+			expectingButGot("IDENTIFIER", "" + t0.getType() + " (" + t0.getText() + ")",
+					t0.getLine(), t0.getPosition());
+			return;
 		}
 
-		return tag;
-	}
-
-	/**
-	 * @return The position at the end of the value list
-	 */
-	private int addTagValues(Tag tag, List<Token> toks, int tpos) throws SDLParseException {
-
-		int size=toks.size(), i=tpos;
-
+		// read values
 		for(; i < size; i++) {
-			Token t = toks.get(i);
+			final Token t = toks.get(i);
 			if(t.isLiteral()) {
-
-//			    if(SdlType.DATETIME.equals(t.getType())) { // don't think I need this
-//                    tag.addValue( new SdlValue<>(ZonedDateTime.class.cast(t.getObjectForLiteral().getValue()), SdlType.DATETIME) );
-////                    tag.addValue(LocalDateTime.class.cast(t.getObjectForLiteral()));
-//                }
-
-
-                tag.addValue(t.getObjectForLiteral());
-
+				handler.value(t.getSdlValue());
 			} else if(SdlType.IDENTIFIER.equals(t.getType())) {
-                break;
-
-			    // todo: CHECK THIS CODE - SOMETHING HERE IS WRONG/BROKEN
-//			    if( (i+2) < size && SdlType.EQUALS.equals(toks.get(i+1).getType()) ) {
-//                    tag.setAttribute(t.getText(), toks.get(i+2).getObjectForLiteral());
-//                    i++;//i +=2;
-//                } else {
-//                    break;
-//                }
-                //i++;//i +=2;
-
+				break;
 			} else {
 				expectingButGot("LITERAL or IDENTIFIER", t.getType(), t.getLine(), t.getPosition());
 			}
 		}
 
-		return i;
+		// read attributes
+		if(i<size) {
+			readAttributes(handler, toks, i, size);
+		}
 	}
 
 	/**
-	 * Add attributes to the given tag
+	 * Pass the key=value and namespace:key=value attributes between {@code tpos} and {@code size} to the handler
 	 */
-	private void addTagAttributes(final Tag tag, final List<Token> toks, final int tpos) throws SDLParseException {
+	private void readAttributes(final SdlHandler handler, final List<Token> toks, final int tpos, final int size) throws SDLParseException {
 
 		int i = tpos;
-        final int size = toks.size();
 
         while(i<size) {
 			Token t = toks.get(i);
@@ -283,11 +505,7 @@ public class Parser {
                     expectingButGot("LITERAL", t.getType(), t.getLine(), t.getPosition());
                 }
 
-                if(nameOrNamespace.equals(name)) {
-                    tag.setAttribute(name, t.getSdlValue());
-                } else {
-                    tag.setAttribute(nameOrNamespace, name, t.getSdlValue());
-                }
+                handler.attribute(nameOrNamespace.equals(name) ? "" : nameOrNamespace, name, t.getSdlValue());
 
 			} else if(SdlType.EQUALS.equals(t.getType())) {
 				if(i==size-1) {
@@ -300,10 +518,7 @@ public class Parser {
                     expectingButGot("LITERAL", t.getType(), t.getLine(), t.getPosition());
                 }
 
-//				if(SdlType.DATETIME.equals(t.getType())) {
-//				    tag.setAttribute(nameOrNamespace, t.getObjectForLiteral());
-//                }
-                tag.setAttribute(nameOrNamespace, t.getSdlValue());
+                handler.attribute("", nameOrNamespace, t.getSdlValue());
 
 			} else {
 				expectingButGot("\":\" or \"=\"", t.getType(), t.getLine(), t.getPosition());
@@ -333,7 +548,12 @@ public class Parser {
 		if(line==null) {
             return null;
         }
-		toks = new ArrayList<>();
+		// the token list is reused as handlers never hold on to it
+		if(toks == null) {
+			toks = new ArrayList<>();
+		} else {
+			toks.clear();
+		}
 		lineLength = line.length();
 		sb = null;
 		tokenStart=0;
@@ -349,19 +569,21 @@ public class Parser {
 			} else if(c=='\'') {
 				// handle character literals
 				handleCharacterLiteral();
-			} else if("{}=:".indexOf(c)!=-1) {
+			} else if(CharClass.isPunctuation(c)) {
 				// handle punctuation
 				toks.add(new Token(""+c, lineNumber, pos));
 				sb=null;
 			} else if(c=='#') {
 				// handle hash comments
+				comment(line.substring(pos+1));
 				break;
 			} else if(c=='/') {
 				// handle /**/ and // style comments
 
-				if((pos+1)<lineLength && line.charAt(pos+1)=='/')
+				if((pos+1)<lineLength && line.charAt(pos+1)=='/') {
+					comment(line.substring(pos+2));
 					break;
-				else
+				} else
 					handleSlashComment();
 			} else if(c=='`') {
 				// handle multiline `` style strings
@@ -373,7 +595,7 @@ public class Parser {
 
 			} else if(c==' ' || c=='\t') {
 				// eat whitespace
-				while((pos+1)<lineLength && " \t".indexOf(line.charAt(pos+1))!=-1) {
+				while((pos+1)<lineLength && CharClass.isWhitespace(line.charAt(pos+1))) {
 					pos++;
 				}
 			} else if(c=='\\') {
@@ -382,13 +604,14 @@ public class Parser {
 				// backslash line continuation outside of a String literal
 				// can only occur at the end of a line
 				handleLineContinuation();
-			} else if("0123456789-.".indexOf(c) != -1) {
+			} else if(CharClass.isNumberStart(c)) {
 				if(c=='-' && (pos+1) < lineLength && line.charAt(pos+1)=='-') {
+					comment(line.substring(pos+2));
 					break;
 				}
 				// handle numbers, dates, and time spans
 				handleNumberDateOrTimeSpan();
-			} else if( String.valueOf(c).matches("(\\w|\\n|-|_|\\.|\\$)") ) {
+			} else if(CharClass.isIdentifierStart(c)) {
 				// handle identifiers
 				handleIdentifier();
 			} else if(c==';') {
@@ -463,7 +686,7 @@ public class Parser {
 		for(;pos<lineLength; pos++) {
 			char c=line.charAt(pos);
 
-			if(" \t".indexOf(c)!=-1 && startEscapedQuoteLine)
+			if(CharClass.isWhitespace(c) && startEscapedQuoteLine)
 				continue;
 			else
 				startEscapedQuoteLine=false;
@@ -474,7 +697,7 @@ public class Parser {
 			} else if(c=='\\') {
 				// check for String broken across lines
 				if(pos==lineLength-1 || (pos+1<lineLength &&
-						" \t".indexOf(line.charAt(pos+1))!=-1)) {
+						CharClass.isWhitespace(line.charAt(pos+1)))) {
 					handleEscapedDoubleQuotedString();
 				} else {
 					escaped=true;
@@ -512,7 +735,7 @@ public class Parser {
 		} else {
 			// consume whitespace
 			int j=pos+1;
-			while(j<lineLength && " \t".indexOf(line.charAt(j))!=-1) j++;
+			while(j<lineLength && CharClass.isWhitespace(line.charAt(j))) j++;
 
 			if(j==lineLength) {
 				line = readLine();
@@ -591,12 +814,14 @@ public class Parser {
 
 		if(line.charAt(pos+1)=='*') {
 
-			int endIndex = line.indexOf("*/", pos+1);
+			int endIndex = line.indexOf("*/", pos+2);
 			if(endIndex!=-1) {
 				// handle comment on same line
+				comment(line.substring(pos+2, endIndex));
 				pos=endIndex+1;
 			} else {
 				// handle multiline comments
+				final StringBuilder text = handler != null ? new StringBuilder(line.substring(pos+2)) : null;
 				inner: while(true) {
 					line = readRawLine();
 					if(line==null) {
@@ -606,9 +831,14 @@ public class Parser {
 					endIndex = line.indexOf("*/");
 
 					if(endIndex!=-1) {
+						if(text != null) {
+							comment(text.append('\n').append(line, 0, endIndex).toString());
+						}
 						lineLength = line.length();
 						pos=endIndex+1;
 						break inner;
+					} else if(text != null) {
+						text.append('\n').append(line);
 					}
 				}
 			}
@@ -711,56 +941,87 @@ public class Parser {
 
 	private void handleNumberDateOrTimeSpan() throws SDLParseException {
 		tokenStart = pos;
-		sb = new StringBuilder();
-		char c;
-		boolean allowSpace = line.substring(pos).matches(DATETIME_REGEX + ".*");
+		boolean allowSpace = isDateTimeAhead(pos);
 
 		for(;pos<lineLength; ++pos) {
-			c=line.charAt(pos);
+			final char c=line.charAt(pos);
 
-			if("0123456789.-+:abcdefghijklmnopqrstuvwxyz".indexOf(Character.toLowerCase(c)) != -1) {
-				sb.append(c);
+			if(CharClass.isNumberPart(c)) {
+				continue;
 			} else if(c=='/' && !((pos+1)<lineLength && line.charAt(pos+1)=='*')) {
-				sb.append(c);
+				continue;
 			} else if(c == ' ' && allowSpace) {
-			    sb.append(c);
-			    allowSpace = false; // there's only 1 space in a datetime
-            } else {
-				pos--;
-				break;
+				allowSpace = false; // there's only 1 space in a datetime
+				continue;
 			}
+			break;
 		}
 
-		toks.add(new Token(sb.toString(), lineNumber, tokenStart));
+		toks.add(new Token(line.substring(tokenStart, pos), lineNumber, tokenStart));
+		pos--;
 		sb=null;
 	}
 
+	/**
+	 * Checks for the start of a date time ("yyyy/MM/dd HH:mm") at the given index so that the
+	 * space between the date and time can be included in the token.
+	 */
+	private boolean isDateTimeAhead(final int index) {
+		int i = skipDigits(index);
+		if(i == index || i >= lineLength || line.charAt(i) != '/') return false;
+		int j = skipDigits(++i);
+		if(j == i || j >= lineLength || line.charAt(j) != '/') return false;
+		i = skipDigits(++j);
+		if(i == j || i >= lineLength || line.charAt(i) != ' ') return false;
+		j = skipDigits(++i);
+		if(j == i || j >= lineLength || line.charAt(j) != ':') return false;
+		return skipDigits(++j) != j;
+	}
+
+	private int skipDigits(int i) {
+		while(i < lineLength && CharClass.isDigit(line.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
 	private void handleIdentifier() throws SDLParseException {
 		tokenStart=pos;
-		sb=new StringBuilder();
-		char c;
-
-		for(;pos<lineLength; ++pos) {
-			c=line.charAt(pos);
 
-			if( String.valueOf(c).matches("(\\w|\\n|-|_|\\.|\\$)") ) {
-				sb.append(c);
-			} else {
-				pos--;
-				break;
-			}
+		while(pos<lineLength && CharClass.isIdentifierPart(line.charAt(pos))) {
+			pos++;
 		}
 
-		toks.add(new Token(sb.toString(), lineNumber, tokenStart));
+		if(symbols == null) {
+			symbols = new SymbolTable();
+		}
+		toks.add(new Token(symbols.intern(line, tokenStart, pos), lineNumber, tokenStart));
+		pos--;
 		sb=null;
 	}
 
+	/**
+	 * Report the text of a comment to the handler
+	 */
+	private void comment(final String text) {
+		if(handler != null) {
+			handler.comment(text.trim());
+		}
+	}
+
+	/**
+	 * Close the underlying reader
+	 */
+	void close() throws IOException {
+		source.close();
+	}
+
 	/**
 	 * Close the reader and throw a SDLParseException
 	 */
-	private void parseException(final String description, final int line, final int position) throws SDLParseException {
+	void parseException(final String description, final int line, final int position) throws SDLParseException {
 		try {
-			reader.close();
+			source.close();
 		} catch(final IOException ioe) { /* no recourse */ }
 
 		// We add one because editors typically start with line 1 and position 1
@@ -772,7 +1033,7 @@ public class Parser {
 	 * Close the reader and throw a SDLParseException using the format
 	 * Was expecting X but got Y.
 	 */
-	private void expectingButGot(final String expecting,
+	void expectingButGot(final String expecting,
 								 final Object got,
 								 final int line,
 								 final int position) throws SDLParseException {
@@ -788,7 +1049,7 @@ public class Parser {
 	 */
 	@Nullable
 	private String readLine() throws IOException {
-		String line = reader.readLine();
+		String line = source.readLine();
 		pos=0;
 
 		if(line==null) {
@@ -799,7 +1060,10 @@ public class Parser {
 		String tLine = line.trim();
 
 		while(tLine.startsWith("#") || tLine.length()==0) {
-			line = reader.readLine();
+			if(tLine.length()!=0) {
+				comment(tLine.substring(1));
+			}
+			line = source.readLine();
 			if(line==null) {
                 return null;
             }
@@ -818,7 +1082,7 @@ public class Parser {
 	 */
 	@Nullable
 	private String readRawLine() throws IOException {
-		final String line = reader.readLine();
+		final String line = source.readLine();
         if(line == null) {
             return null;
         }
@@ -859,7 +1123,10 @@ public class Parser {
 		return Character.valueOf(literal.charAt(1));
 	}
 
-	static Number parseNumber(String literal) {
+	/**
+	 * @return a number value, ints, longs, floats and doubles are held without boxing
+	 */
+	static SdlValue<?> parseNumber(String literal) {
 		int textLength = literal.length();
 		boolean hasDot=false;
 		int tailStart=0;
@@ -890,96 +1157,194 @@ public class Parser {
 
 		if(tail.length() == 0) {
 			if(hasDot) {
-				return new Double(number);
+				return new SdlValue.DoubleValue(Double.parseDouble(number));
 			} else {
-				return new Integer(number);
+				return ValueCache.integer(Integer.parseInt(number));
 			}
 		}
 
 		if(tail.equalsIgnoreCase("BD")) {
-			return new BigDecimal(number);
+			return new SdlValue<>(new BigDecimal(number), SdlType.NUMBER);
 		} else if(tail.equalsIgnoreCase("L")) {
 			if(hasDot) {
 				throw new NumberFormatException("Long literal with decimal point");
 			}
-			return new Long(number);
+			return new SdlValue.LongValue(Long.parseLong(number));
 		} else if(tail.equalsIgnoreCase("F")) {
-			return new Float(number);
+			return new SdlValue.FloatValue(Float.parseFloat(number));
 		} else if(tail.equalsIgnoreCase("D")) {
-			return new Double(number);
+			return new SdlValue.DoubleValue(Double.parseDouble(number));
 		}
 
 		throw new NumberFormatException("Could not parse number <" + literal + ">");
 	}
 
-	static LocalDate parseDate(final String literal) {
-	    return LocalDate.parse(literal, DateTimeFormatter.ofPattern("y/M/d"));
-    }
+	/**
+	 * Parse a literal beginning with a digit, '-' or '.' in a single pass. The leading digits
+	 * decide what the literal is: followed by '/' it's a date (or date time), followed by
+	 * ':' or "d:" it's a time span, anything else is handed to {@link #parseNumber(String)}.
+	 *
+	 * @param literal a number, date, date time or time span
+	 * @return the parsed value with its SdlType
+	 * @throws IllegalArgumentException if the literal is malformed
+	 * @since 2.1.1
+	 */
+	static SdlValue<?> parseNumberDateOrTimeSpan(final String literal) {
+		final LiteralScanner scanner = new LiteralScanner(literal);
+		final boolean negative = scanner.consume('-');
+		final int start = scanner.pos;
+		scanner.skipDigits();
+
+		if(scanner.pos != start && !scanner.atEnd()) {
+			final char c = scanner.peek();
+			if(c == '/' && !negative) {
+				scanner.pos = start;
+				return scanner.dateOrDateTime();
+			} else if(c == ':' || (c == 'd' && scanner.peek(1) == ':')) {
+				scanner.pos = start;
+				final Duration duration = scanner.timeSpan();
+				return new SdlValue<>(negative ? duration.negated() : duration, SdlType.DURATION);
+			}
+		}
 
-    static LocalTime parseTime(final String literal) {
-        final String[] split = literal.split(":|\\.|-");
+		return parseNumber(literal);
+	}
 
-        //final StringBuilder pattern = new StringBuilder("H:m");
+	/**
+	 * A cursor over a date, date time or time span literal that reads the digit groups
+	 * directly from the text.
+	 */
+	private static final class LiteralScanner {
 
-        //LocalTime.of()
+		private final String text;
+		private final int length;
+		private int pos;
+		private boolean timeSpan;
 
-        switch (split.length) {
-            case 2: // H:m
-                return LocalTime.parse(literal, DateTimeFormatter.ofPattern("H:m"));
-                //return LocalTime.of(Integer.parseInt(split[0]), Integer.parseInt(split[1]));
-            case 3: // H:m:s
-                return LocalTime.parse(literal, DateTimeFormatter.ofPattern("H:m:s"));
-                //return LocalTime.of(Integer.parseInt(split[0]), Integer.parseInt(split[1]), Integer.parseInt(split[2]));
-            case 4: // H:m:s.S
-                return LocalTime.parse(literal, DateTimeFormatter.ISO_LOCAL_TIME); //DateTimeFormatter.ofPattern("H:m:s.S")
-            case 5:
-                // can't handle time with a TimeZone but no Date
-                return null;
-//                return LocalTime.of(Integer.parseInt(split[0]),
-//                    Integer.parseInt(split[1]),
-//                    Integer.parseInt(split[2]),
-//                    Integer.parseInt(split[3]));
-
-//            case 1:
-//                return LocalTime.parse(literal, DateTimeFormatter.ofPattern("H:m:s"));
-//            case 2:
-//                if(split[1].contains(".")) {
-//                    return LocalTime.parse(literal, DateTimeFormatter.ofPattern("H:m:s.SSS"));
-//                } // else we are trying to parse "HH:mm:ss-Z" which is not possible
-//                break;
-//            case 3:
-//                // you cannot have ZonedTime without a date
-//                //return LocalTime.parse(literal, DateTimeFormatter.ofPattern("HH:mm:ss.SSS-Z"));
-//                break;
-        }
-        return null; // should there be an exception here???
-    }
+		private LiteralScanner(final String text) {
+			this.text = text;
+			this.length = text.length();
+		}
 
-    static LocalDateTime parseLocalDateTime(final String literal) {
-	    int[] intVals = {0,0,0,0,0,0,0};
-        final String[] strVals = literal.split("/| |:|\\.");
-        for (int i = 0; i < strVals.length; i++) {
-            intVals[i] = Integer.parseInt(strVals[i]);
-        }
-        return LocalDateTime.of(intVals[0], intVals[1], intVals[2], intVals[3], intVals[4], intVals[5], intVals[6]*1_000_000);
-    }
+		private boolean atEnd() {
+			return pos >= length;
+		}
 
-	static ZonedDateTime parseZonedDateTime(final String literal) {
-        final TimeZone timeZone = literal.contains("-") ? TimeZone.getTimeZone(literal.substring(literal.indexOf("-") +1)) : TimeZone.getDefault();
+		private char peek() {
+			return text.charAt(pos);
+		}
 
-        int[] intVals = {0,0,0,0,0,0,0};
+		private char peek(final int offset) {
+			return pos + offset < length ? text.charAt(pos + offset) : 0;
+		}
 
-        final String[] strVals = literal.contains("-") ? literal
-            .substring(0, literal.lastIndexOf("-"))
-            .split("/| |:|\\.") :
-            literal.split("/| |:|\\.");
+		private boolean consume(final char c) {
+			if(pos < length && text.charAt(pos) == c) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
 
-        for (int i = 0; i < strVals.length; i++) {
-            intVals[i] = Integer.parseInt(strVals[i]);
-        }
+		private void expect(final char c) {
+			if(!consume(c)) {
+				throw malformed();
+			}
+		}
 
-        return ZonedDateTime.of(intVals[0], intVals[1], intVals[2], intVals[3], intVals[4], intVals[5], intVals[6]*1_000_000, timeZone.toZoneId());
-    }
+		private void skipDigits() {
+			while(pos < length && CharClass.isDigit(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private int digits() {
+			final int start = pos;
+			int value = 0;
+			while(pos < length && CharClass.isDigit(text.charAt(pos))) {
+				if(pos - start == 9) {
+					throw new IllegalArgumentException("Number too large in literal <" + text + ">");
+				}
+				value = value * 10 + (text.charAt(pos++) - '0');
+			}
+			if(pos == start) {
+				throw malformed();
+			}
+			return value;
+		}
+
+		// yyyy/MM/dd or yyyy/MM/dd HH:mm(:ss)(.xxx)(-ZONE)
+		private SdlValue<?> dateOrDateTime() {
+			final int year = digits();
+			expect('/');
+			final int month = digits();
+			expect('/');
+			final int day = digits();
+
+			try {
+				if(atEnd()) {
+					return new SdlValue<>(LocalDate.of(year, month, day), SdlType.DATE);
+				}
+
+				expect(' ');
+				final int hour = digits();
+				expect(':');
+				final int minute = digits();
+				int second = 0;
+				int millis = 0;
+				if(consume(':')) {
+					second = digits();
+					if(consume('.')) {
+						millis = digits();
+					}
+				}
+
+				if(consume('-')) {
+					if(atEnd()) {
+						throw malformed();
+					}
+					final ZoneId zone = ZoneCache.resolve(text, pos, length);
+					return new SdlValue<>(ZonedDateTime.of(year, month, day, hour, minute, second, millis * 1_000_000, zone), SdlType.DATETIME);
+				} else if(!atEnd()) {
+					throw malformed();
+				}
+				return new SdlValue<>(LocalDateTime.of(year, month, day, hour, minute, second, millis * 1_000_000), SdlType.DATETIME);
+			} catch(final DateTimeException e) {
+				throw new IllegalArgumentException(e.getMessage() + " <" + text + ">", e);
+			}
+		}
+
+		// (d:)hh:mm:ss(.xxx) with any leading '-' already consumed
+		private Duration timeSpan() {
+			timeSpan = true;
+			long days = 0L;
+			long hours = digits();
+			if(consume('d')) {
+				expect(':');
+				days = hours;
+				hours = digits();
+			}
+			expect(':');
+			final long minutes = digits();
+			expect(':');
+			final long seconds = digits();
+			final long millis = consume('.') ? digits() : 0L;
+
+			if(!atEnd()) {
+				throw malformed();
+			}
+
+			return Duration.ofSeconds(days * 86_400L + hours * 3_600L + minutes * 60L + seconds, millis * 1_000_000L);
+		}
+
+		private IllegalArgumentException malformed() {
+			if(timeSpan) {
+				return new IllegalArgumentException("Malformed time span <" + text + ">.  Time spans must use the format " +
+					"(d:)hh:mm:ss(.xxx) Note: if the day component is included it must be suffixed with lower case \"d\"");
+			}
+			return new IllegalArgumentException("Malformed date or date time <" + text + ">");
+		}
+	}
 
 	static byte[] parseBinary(String literal) {
 		final String stripped = literal.substring(1, literal.length()-1);
@@ -995,46 +1360,4 @@ public class Parser {
 		return Base64.getDecoder().decode(sb.toString());
 	}
 
-
-	static Duration parseTimeSpan(final String literal) {
-	    if(!literal.matches(TIMESPAN_REGEX)) {
-            throw new IllegalArgumentException("Malformed time span <" +
-                literal + ">.  Time spans must use the format " +
-                "(d:)hh:mm:ss(.xxx) Note: if the day component is " +
-                "included it must be suffixed with lower case \"d\"");
-        }
-
-        final boolean negate = literal.contains("-");
-        final List<String> groups = Arrays.asList(literal.replace("-", "").split("d:|\\.")); // we should get 1 - 3 groups
-
-        int days=0; // optional
-		int hours=0; // mandatory
-		int minutes=0; // mandatory
-		int seconds=0; // mandatory
-		long milliseconds=0; // optional
-
-        for(final String group : groups) {
-            if(group.matches("\\d+:\\d+:\\d+")) {
-                final String[] segments = group.split(":");
-                hours = Integer.parseInt(segments[0]);
-                minutes = Integer.parseInt(segments[1]);
-                seconds = Integer.parseInt(segments[2]);
-            } else {
-                if(groups.indexOf(group) == 0) {
-                    days = Integer.parseInt(group);
-                } else {
-                    milliseconds = Long.parseLong(group);
-                }
-            }
-        }
-
-        final Duration duration = Duration.ofDays(days)
-            .plusHours(hours)
-            .plusMinutes(minutes)
-            .plusSeconds(seconds)
-            .plusMillis(milliseconds);
-
-        return negate ? duration.negated() : duration;
-    }
-
 }
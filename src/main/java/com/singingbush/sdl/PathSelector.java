@@ -0,0 +1,145 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@link SdlHandler} used by {@link Parser#stream(SdlPath)} to build only the tags that
+ * match a path. A tag's values and attributes are only read into a {@link Tag} when it is inside
+ * a tag that matched, when it may itself be selected, or when a step with a predicate needs
+ * them. Other tags are matched on their name and namespace alone. When no step of the path can
+ * match within the body of a tag the parser is asked to skip it.
+ *
+ * @since 2.1.1
+ */
+final class PathSelector implements SdlHandler {
+
+    private final SdlPath path;
+    private final Parser parser;
+
+    private final List<Tag> tags = new ArrayList<>();
+    private final List<Tag> pending = new ArrayList<>();
+
+    // for each open block the tag being built (null when it isn't kept), the path states for
+    // its children and whether the tag itself matched
+    private Tag[] open = new Tag[8];
+    private long[] states = new long[8];
+    private boolean[] matched = new boolean[8];
+    private int top = -1;
+    private int openMatches;
+
+    // the tag whose values and attributes are being read, the tag is null when they aren't needed
+    private boolean inHeader;
+    private String headerNamespace;
+    private String headerName;
+    private Tag header;
+
+    PathSelector(@NotNull final SdlPath path, @NotNull final Parser parser) {
+        this.path = path;
+        this.parser = parser;
+    }
+
+    @Override
+    public void startTag(@NotNull final String namespace, @NotNull final String name) {
+        final boolean building = top >= 0 && open[top] != null;
+        inHeader = true;
+        headerNamespace = namespace;
+        headerName = name;
+        header = building || path.needsTag(currentStates(), namespace, name) ? new Tag(namespace, name) : null;
+    }
+
+    @Override
+    public void value(@NotNull final SdlValue value) {
+        if(header != null) {
+            header.addValue(value);
+        }
+    }
+
+    @Override
+    public void attribute(@NotNull final String namespace, @NotNull final String key, @NotNull final SdlValue value) {
+        if(header != null) {
+            header.setAttribute(namespace, key, value);
+        }
+    }
+
+    @Override
+    public void startChildren() {
+        final Tag tag = header;
+        final boolean building = top >= 0 && open[top] != null;
+        final long next = accept();
+        final boolean isMatch = (next & SdlPath.MATCHED) != 0;
+        final long childStates = next & ~SdlPath.MATCHED;
+
+        if(++top == open.length) {
+            open = Arrays.copyOf(open, top * 2);
+            states = Arrays.copyOf(states, top * 2);
+            matched = Arrays.copyOf(matched, top * 2);
+        }
+        open[top] = building || isMatch ? tag : null;
+        states[top] = childStates;
+        matched[top] = isMatch;
+
+        if(isMatch) {
+            openMatches++;
+        } else if(!building && childStates == 0) {
+            parser.skipChildren();
+        }
+    }
+
+    @Override
+    public void endTag() {
+        if(inHeader) {
+            // a tag without a body
+            accept();
+        } else {
+            if(matched[top]) {
+                openMatches--;
+            }
+            open[top--] = null;
+        }
+
+        // matches are held back until any match enclosing them is complete, keeping them in document order
+        if(openMatches == 0 && !pending.isEmpty()) {
+            tags.addAll(pending);
+            pending.clear();
+        }
+    }
+
+    private long currentStates() {
+        return top >= 0 ? states[top] : SdlPath.START;
+    }
+
+    /**
+     * Match the header against the path, adding its tag to the tag being built and to the matches as needed
+     *
+     * @return the result of {@link SdlPath#advance(long, Tag)}
+     */
+    private long accept() {
+        final Tag tag = header;
+        inHeader = false;
+        header = null;
+
+        if(tag == null) {
+            return path.advance(currentStates(), headerNamespace, headerName);
+        }
+
+        final long next = path.advance(currentStates(), tag);
+        if(top >= 0 && open[top] != null) {
+            open[top].addChild(tag);
+        }
+        if((next & SdlPath.MATCHED) != 0) {
+            pending.add(tag);
+        }
+        return next;
+    }
+
+    /**
+     * @return the matching tags that have been completed so far
+     */
+    List<Tag> getTags() {
+        return tags;
+    }
+}
@@ -35,7 +35,7 @@ import java.util.Base64;
  */
 public class SDL {
 
-    public static final SdlValue NULL = new SdlValue<>(null, SdlType.NULL);
+    public static final SdlValue NULL = ValueCache.NULL;
 
 	/**
 	 * <p>The SDL standard date format "yyyy/MM/dd" or "y/M/d"</p>
@@ -306,7 +306,7 @@ public class SDL {
 		int identifierSize=identifier.length();
 		for(int i=1; i<identifierSize; i++) {
 			final char c = identifier.charAt(i);
-			if(!String.valueOf(c).matches("(\\w|\\n|-|_|\\.|\\$)")) {
+			if(!CharClass.isIdentifierPart(c)) {
 				throw new IllegalArgumentException("'" + c +
 						"' is not a legal character for an SDL identifier. " +
 						"SDL Identifiers must start with a unicode letter or " +
@@ -343,7 +343,7 @@ public class SDL {
     public static SdlValue<String> value(@NotNull final String value, final boolean literal) {
         return literal?
             new SdlValue<>(Parser.parseMultilineString(String.format("`%s`", value)), SdlType.STRING_MULTILINE) :
-            new SdlValue<>(Parser.parseString(String.format("\"%s\"", value)), SdlType.STRING);
+            ValueCache.string(Parser.parseString(String.format("\"%s\"", value)));
     }
 
     /**
@@ -352,7 +352,7 @@ public class SDL {
      * @since 2.1.0
      */
     public static SdlValue<Character> value(final char value) {
-        return new SdlValue<>(value, SdlType.CHARACTER);
+        return ValueCache.character(value);
     }
 
     /**
@@ -361,7 +361,7 @@ public class SDL {
      * @since 2.1.0
      */
     public static SdlValue<Boolean> value(final boolean value) {
-        return new SdlValue<>(value, SdlType.BOOLEAN);
+        return ValueCache.bool(value);
     }
 
     /**
@@ -370,7 +370,7 @@ public class SDL {
      * @since 2.1.0
      */
     public static SdlValue<Long> value(final long value) {
-        return new SdlValue<>(value, SdlType.NUMBER);
+        return new SdlValue.LongValue(value);
     }
 
     /**
@@ -379,7 +379,7 @@ public class SDL {
      * @since 2.1.0
      */
     public static SdlValue<Float> value(final float value) {
-        return new SdlValue<>(value, SdlType.NUMBER);
+        return new SdlValue.FloatValue(value);
     }
 
     /**
@@ -388,16 +388,18 @@ public class SDL {
      * @since 2.1.0
      */
     public static SdlValue<Double> value(final double value) {
-        return new SdlValue<>(value, SdlType.NUMBER);
+        return new SdlValue.DoubleValue(value);
     }
 
     /**
+     * Small ints, from -128 to 1023 unless the {@code com.singingbush.sdl.cache.high} system
+     * property says otherwise, share a single instance per value
      * @param value text to be converted to SDL
      * @return an SDL integer
      * @since 2.1.0
      */
     public static SdlValue<Integer> value(final int value) {
-        return new SdlValue<>(value, SdlType.NUMBER);
+        return ValueCache.integer(value);
     }
 
     /**
@@ -461,33 +463,22 @@ public class SDL {
         }
 
 		if(literal.startsWith("\""))
-			return new SdlValue<>(Parser.parseString(literal), SdlType.STRING);
+			return ValueCache.string(Parser.parseString(literal));
         if(literal.startsWith("`"))
             return new SdlValue<>(Parser.parseMultilineString(literal), SdlType.STRING_MULTILINE);
 		if(literal.startsWith("'"))
-			return new SdlValue<>(Parser.parseCharacter(literal), SdlType.CHARACTER);
+			return ValueCache.character(Parser.parseCharacter(literal));
 		if(literal.equals("null"))
-			return new SdlValue<>(null, SdlType.NULL);
+			return NULL;
 		if(literal.equals("true") || literal.equals("on"))
-			return new SdlValue<>(Boolean.TRUE, SdlType.BOOLEAN);
+			return ValueCache.TRUE;
 		if(literal.equals("false") || literal.equals("off"))
-			return new SdlValue<>(Boolean.FALSE, SdlType.BOOLEAN);
+			return ValueCache.FALSE;
 		if(literal.startsWith("["))
 			return new SdlValue<>(Parser.parseBinary(literal), SdlType.BINARY);
-		if(literal.matches("\\d+[-|/]\\d+[-|/]\\d+")) { //literal.matches("\\d+/\\d+/\\d+")) {
-            return new SdlValue<>(Parser.parseDate(literal), SdlType.DATE);
-        }
-        if(literal.matches(Parser.DATETIME_REGEX)) { // "(\\d+/\\d+/\\d+) ((\\d+:\\d+:\\d+(.\\d+)?)(-\\w+)?)"
-		    return literal.contains("-") ?
-                new SdlValue<>(Parser.parseZonedDateTime(literal), SdlType.DATETIME) :
-                new SdlValue<>(Parser.parseLocalDateTime(literal), SdlType.DATETIME);
-        }
-
-		if(literal.matches(Parser.TIMESPAN_REGEX)) { // "-?(\\d+d:)?(\\d+:\\d+:\\d+)(.\\d+)?"
-            return new SdlValue<>(Parser.parseTimeSpan(literal), SdlType.DURATION);
-        }
-		if("01234567890-.".indexOf(literal.charAt(0)) != -1) {
-            return new SdlValue<>(Parser.parseNumber(literal), SdlType.NUMBER);
+		if(CharClass.isNumberStart(literal.charAt(0))) {
+		    // numbers, dates, date times and time spans
+            return Parser.parseNumberDateOrTimeSpan(literal);
         }
 
 		throw new IllegalArgumentException("String " + literal + " does not represent an SDL type.");
@@ -0,0 +1,59 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Receives the contents of an SDL document as it is parsed. Passing a handler to
+ * {@link Parser#parse(SdlHandler)} avoids building a tree of {@link Tag} objects, which is
+ * useful when only a few details of each tag are needed.</p>
+ *
+ * <p>For each tag the parser calls {@link #startTag(String, String)}, then {@link #value(SdlValue)}
+ * for each value and {@link #attribute(String, String, SdlValue)} for each attribute. If the
+ * tag has a body {@link #startChildren()} is called followed by the events for each child.
+ * Every tag is finished with a call to {@link #endTag()}.</p>
+ *
+ * @since 2.1.1
+ */
+public interface SdlHandler {
+
+    /**
+     * Called at the start of each tag
+     *
+     * @param namespace the namespace of the tag or an empty String if it has none
+     * @param name the name of the tag, anonymous tags are named "content"
+     */
+    void startTag(@NotNull String namespace, @NotNull String name);
+
+    /**
+     * Called for each value of the current tag
+     *
+     * @param value the value
+     */
+    void value(@NotNull SdlValue value);
+
+    /**
+     * Called for each attribute of the current tag
+     *
+     * @param namespace the namespace of the attribute or an empty String if it has none
+     * @param key the attribute key
+     * @param value the attribute value
+     */
+    void attribute(@NotNull String namespace, @NotNull String key, @NotNull SdlValue value);
+
+    /**
+     * Called after the values and attributes of a tag that has a body
+     */
+    default void startChildren() {}
+
+    /**
+     * Called at the end of each tag, after any children
+     */
+    void endTag();
+
+    /**
+     * Called for each comment in the document. Comments are reported ahead of the tag on the same line.
+     *
+     * @param text the text of the comment without the comment markers
+     */
+    default void comment(@NotNull String text) {}
+}
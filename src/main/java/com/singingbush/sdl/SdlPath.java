@@ -0,0 +1,531 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * <p>A compiled path expression for selecting tags from a tree of {@link Tag} objects, similar
+ * to a small subset of XPath. A path is compiled once and can then be evaluated any number of
+ * times, from any number of threads.</p>
+ *
+ * <pre>
+ * SdlPath path = SdlPath.compile("servers/server[@port&gt;8000]/host");
+ * List&lt;Tag&gt; hosts = path.select(config);
+ * </pre>
+ *
+ * <p>A path is a series of steps separated by '/'. Each step selects the children of the tags
+ * matched by the previous step, the first step selecting the children of the context tag (or
+ * the tags themselves when given a list of top level tags). A step separated by '//' instead
+ * selects descendants at any depth. Each step is one of:</p>
+ * <ul>
+ *     <li><code>name</code> tags with the name in any namespace</li>
+ *     <li><code>ns:name</code> tags with the name in the namespace</li>
+ *     <li><code>ns:*</code> any tag in the namespace</li>
+ *     <li><code>*</code> any tag</li>
+ * </ul>
+ *
+ * <p>Each step may be followed by any number of predicates in square brackets, all of which
+ * must hold for a tag to match:</p>
+ * <ul>
+ *     <li><code>[@key]</code> or <code>[@ns:key]</code> the tag has the attribute</li>
+ *     <li><code>[.]</code> the tag has a value</li>
+ *     <li><code>[@key op literal]</code> the attribute compares to the SDL literal</li>
+ *     <li><code>[. op literal]</code> the first value compares to the SDL literal</li>
+ * </ul>
+ *
+ * <p>The operators are <code>=</code>, <code>!=</code>, <code>&lt;</code>, <code>&lt;=</code>,
+ * <code>&gt;</code> and <code>&gt;=</code>. Numbers are compared by value regardless of their
+ * Java type, other values must be of the same type to be ordered.</p>
+ *
+ * @since 2.1.1
+ */
+public final class SdlPath {
+
+    /** The state in which the first step is matched against the children of the context */
+    static final long START = 1L;
+
+    /** Set in the result of {@link #advance(long, Tag)} when the tag is selected by the path */
+    static final long MATCHED = 1L << 63;
+
+    private static final int MAX_STEPS = 63;
+
+    private final String expression;
+    private final Step[] steps;
+
+    private SdlPath(@NotNull final String expression, @NotNull final Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+    }
+
+    /**
+     * Compile a path expression
+     *
+     * @param expression the path, for example <code>servers/server[@port&gt;8000]/host</code>
+     * @return the compiled path
+     * @throws IllegalArgumentException If the expression is not a valid path
+     */
+    @NotNull
+    public static SdlPath compile(@NotNull final String expression) {
+        return new Compiler(expression).compile();
+    }
+
+    /**
+     * @param context the tag whose children are matched against the first step
+     * @return the matching tags in document order
+     */
+    @NotNull
+    public List<Tag> select(@NotNull final Tag context) {
+        return select(context.getChildren());
+    }
+
+    /**
+     * @param tags the tags that are matched against the first step, such as the top level tags
+     *             returned by {@link Parser#parse()}
+     * @return the matching tags in document order
+     */
+    @NotNull
+    public List<Tag> select(@NotNull final List<Tag> tags) {
+        final List<Tag> matches = new ArrayList<>();
+        evaluate(tags, matches::add);
+        return matches;
+    }
+
+    /**
+     * @param context the tag whose children are matched against the first step
+     * @return the first matching tag in document order, or null if there is none
+     */
+    @Nullable
+    public Tag selectFirst(@NotNull final Tag context) {
+        return selectFirst(context.getChildren());
+    }
+
+    /**
+     * @param tags the tags that are matched against the first step
+     * @return the first matching tag in document order, or null if there is none
+     */
+    @Nullable
+    public Tag selectFirst(@NotNull final List<Tag> tags) {
+        final Tag[] first = new Tag[1];
+        evaluate(tags, t -> {
+            first[0] = t;
+            return false;
+        });
+        return first[0];
+    }
+
+    /**
+     * Pass each matching tag to the action in document order without collecting them
+     *
+     * @param context the tag whose children are matched against the first step
+     * @param action called with each matching tag
+     */
+    public void forEach(@NotNull final Tag context, @NotNull final Consumer<? super Tag> action) {
+        evaluate(context.getChildren(), t -> {
+            action.accept(t);
+            return true;
+        });
+    }
+
+    /**
+     * Walks the tree once in document order, holding the set of steps that may still match at
+     * each level as a bit mask so that a tag reached through more than one '//' is visited, and
+     * selected, only once.
+     *
+     * @param tags the tags matched against the first step
+     * @param sink receives each match, returning false to stop the search
+     * @return false if the search was stopped by the sink
+     */
+    @SuppressWarnings("unchecked")
+    private boolean evaluate(@NotNull final List<Tag> tags, @NotNull final Predicate<Tag> sink) {
+        List<Tag>[] lists = new List[8];
+        int[] positions = new int[8];
+        long[] states = new long[8];
+        int top = 0;
+        lists[0] = tags;
+        states[0] = START;
+
+        while(top >= 0) {
+            final List<Tag> list = lists[top];
+            if(positions[top] == list.size()) {
+                lists[top--] = null;
+                continue;
+            }
+
+            final Tag tag = list.get(positions[top]++);
+            final long next = advance(states[top], tag);
+            if((next & MATCHED) != 0 && !sink.test(tag)) {
+                return false;
+            }
+
+            final long childStates = next & ~MATCHED;
+            final List<Tag> children = tag.getChildren();
+            if(childStates != 0 && !children.isEmpty()) {
+                if(++top == lists.length) {
+                    lists = Arrays.copyOf(lists, top * 2);
+                    positions = Arrays.copyOf(positions, top * 2);
+                    states = Arrays.copyOf(states, top * 2);
+                }
+                lists[top] = children;
+                positions[top] = 0;
+                states[top] = childStates;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Match a tag against the steps that are active at its level. Only the name, namespace,
+     * values and attributes of the tag are looked at, never its children.
+     *
+     * @param states a bit for each step that may match the tag, {@link #START} at the top level
+     * @param tag the tag to match
+     * @return the states for the children of the tag, with {@link #MATCHED} set if the tag is
+     *     selected by the path
+     */
+    long advance(final long states, @NotNull final Tag tag) {
+        return advance(states, tag.getNamespace(), tag.getName(), tag);
+    }
+
+    /**
+     * Match a tag by its name and namespace alone, which gives the same result as
+     * {@link #advance(long, Tag)} whenever {@link #needsTag(long, String, String)} is false
+     *
+     * @param states a bit for each step that may match the tag, {@link #START} at the top level
+     * @param namespace the namespace of the tag
+     * @param name the name of the tag
+     * @return the states for the children of the tag
+     */
+    long advance(final long states, @NotNull final String namespace, @NotNull final String name) {
+        return advance(states, namespace, name, null);
+    }
+
+    /**
+     * @param states a bit for each step that may match the tag, {@link #START} at the top level
+     * @param namespace the namespace of the tag
+     * @param name the name of the tag
+     * @return true if the tag's values or attributes are needed to match it or it may be
+     *     selected by the path, false if its name and namespace are enough
+     */
+    boolean needsTag(final long states, @NotNull final String namespace, @NotNull final String name) {
+        for(long remaining = states; remaining != 0; remaining &= remaining - 1) {
+            final int i = Long.numberOfTrailingZeros(remaining);
+            final Step step = steps[i];
+            if(step.matchesName(namespace, name) && (step.conditions.length > 0 || i == steps.length - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long advance(final long states, final String namespace, final String name, @Nullable final Tag tag) {
+        long next = 0L;
+        for(long remaining = states; remaining != 0; remaining &= remaining - 1) {
+            final int i = Long.numberOfTrailingZeros(remaining);
+            final Step step = steps[i];
+            if(step.descendant) {
+                next |= 1L << i;
+            }
+            if(step.matchesName(namespace, name) && (tag != null ? step.matchesConditions(tag) : step.conditions.length == 0)) {
+                next |= i == steps.length - 1 ? MATCHED : 1L << (i + 1);
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static final class Step {
+        private final boolean descendant;
+        private final String namespace;
+        private final String name;
+        private final Condition[] conditions;
+
+        private Step(final boolean descendant, @Nullable final String namespace, @Nullable final String name, @NotNull final Condition[] conditions) {
+            this.descendant = descendant;
+            this.namespace = namespace;
+            this.name = name;
+            this.conditions = conditions;
+        }
+
+        private boolean matchesName(@NotNull final String namespace, @NotNull final String name) {
+            return (this.name == null || this.name.equals(name)) && (this.namespace == null || this.namespace.equals(namespace));
+        }
+
+        private boolean matchesConditions(@NotNull final Tag tag) {
+            for(final Condition condition : conditions) {
+                if(!condition.test(tag)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private enum Operator {
+        EQ, NE, LT, LE, GT, GE
+    }
+
+    /**
+     * A predicate on either an attribute or the first value of a tag
+     */
+    private static final class Condition {
+        private final boolean attribute;
+        private final String namespace;
+        private final String key;
+        private final Operator operator;
+        private final SdlValue literal;
+
+        private Condition(final boolean attribute, @Nullable final String namespace, @Nullable final String key, @Nullable final Operator operator, @Nullable final SdlValue literal) {
+            this.attribute = attribute;
+            this.namespace = namespace;
+            this.key = key;
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        private boolean test(@NotNull final Tag tag) {
+            final SdlValue actual = attribute ? tag.getAttributeValue(namespace, key) : tag.getSdlValue();
+            if(actual == null) {
+                return false;
+            }
+            if(operator == null) {
+                return true;
+            }
+
+            final Object a = actual.getValue();
+            final Object b = literal.getValue();
+            final Integer order = compare(a, b);
+            switch(operator) {
+                case EQ:
+                    return order != null ? order == 0 : Objects.deepEquals(a, b);
+                case NE:
+                    return order != null ? order != 0 : !Objects.deepEquals(a, b);
+                case LT:
+                    return order != null && order < 0;
+                case LE:
+                    return order != null && order <= 0;
+                case GT:
+                    return order != null && order > 0;
+                default:
+                    return order != null && order >= 0;
+            }
+        }
+
+        /**
+         * @return the ordering of the values, or null if they cannot be ordered
+         */
+        @Nullable
+        @SuppressWarnings("unchecked")
+        private static Integer compare(@Nullable final Object a, @Nullable final Object b) {
+            if(a instanceof Number && b instanceof Number) {
+                return compareNumbers((Number) a, (Number) b);
+            }
+            if(a instanceof Comparable && b != null && a.getClass() == b.getClass()) {
+                return ((Comparable<Object>) a).compareTo(b);
+            }
+            return null;
+        }
+
+        private static int compareNumbers(@NotNull final Number a, @NotNull final Number b) {
+            if((a instanceof BigDecimal || b instanceof BigDecimal) && isFinite(a) && isFinite(b)) {
+                return toBigDecimal(a).compareTo(toBigDecimal(b));
+            }
+            if(isFloatingPoint(a) || isFloatingPoint(b)) {
+                return Double.compare(a.doubleValue(), b.doubleValue());
+            }
+            return Long.compare(a.longValue(), b.longValue());
+        }
+
+        private static boolean isFinite(@NotNull final Number n) {
+            return !isFloatingPoint(n) || !(Double.isNaN(n.doubleValue()) || Double.isInfinite(n.doubleValue()));
+        }
+
+        private static boolean isFloatingPoint(@NotNull final Number n) {
+            return n instanceof Double || n instanceof Float;
+        }
+
+        private static BigDecimal toBigDecimal(@NotNull final Number n) {
+            if(n instanceof BigDecimal) {
+                return (BigDecimal) n;
+            }
+            return isFloatingPoint(n) ? new BigDecimal(n.doubleValue()) : BigDecimal.valueOf(n.longValue());
+        }
+    }
+
+    /**
+     * A recursive descent parser for path expressions
+     */
+    private static final class Compiler {
+        private final String expression;
+        private int position;
+
+        private Compiler(@NotNull final String expression) {
+            this.expression = expression;
+        }
+
+        private SdlPath compile() {
+            final List<Step> steps = new ArrayList<>();
+            boolean descendant = consume("//");
+            do {
+                if(steps.size() == MAX_STEPS) {
+                    throw error("Paths are limited to " + MAX_STEPS + " steps");
+                }
+                steps.add(step(descendant));
+                descendant = consume("//");
+            } while(descendant || consume("/"));
+
+            if(position < expression.length()) {
+                throw error("Unexpected '" + expression.charAt(position) + "'");
+            }
+            return new SdlPath(expression, steps.toArray(new Step[0]));
+        }
+
+        private Step step(final boolean descendant) {
+            String namespace = null;
+            String name = wildcardOrIdentifier();
+            if(consume(":")) {
+                namespace = name;
+                name = wildcardOrIdentifier();
+            }
+
+            final List<Condition> conditions = new ArrayList<>(1);
+            while(consume("[")) {
+                conditions.add(condition());
+            }
+            return new Step(descendant, namespace, name, conditions.toArray(new Condition[0]));
+        }
+
+        private Condition condition() {
+            skipWhitespace();
+            final boolean attribute;
+            String namespace = null;
+            String key = null;
+            if(consume("@")) {
+                attribute = true;
+                key = identifier();
+                if(consume(":")) {
+                    namespace = key;
+                    key = identifier();
+                }
+            } else if(consume(".")) {
+                attribute = false;
+            } else {
+                throw error("Expected '@' or '.'");
+            }
+            skipWhitespace();
+
+            final Operator operator = operator();
+            SdlValue literal = null;
+            if(operator != null) {
+                skipWhitespace();
+                literal = literal();
+                skipWhitespace();
+            }
+            if(!consume("]")) {
+                throw error("Expected ']'");
+            }
+            return new Condition(attribute, namespace, key, operator, literal);
+        }
+
+        @Nullable
+        private Operator operator() {
+            if(consume("!=")) return Operator.NE;
+            if(consume("<=")) return Operator.LE;
+            if(consume(">=")) return Operator.GE;
+            if(consume("=")) return Operator.EQ;
+            if(consume("<")) return Operator.LT;
+            if(consume(">")) return Operator.GT;
+            return null;
+        }
+
+        private SdlValue literal() {
+            final int start = position;
+            final int end;
+            if(position == expression.length()) {
+                throw error("Expected a literal");
+            }
+
+            final char first = expression.charAt(position);
+            if(first == '"' || first == '\'' || first == '`') {
+                end = closing(first, start + 1);
+            } else if(first == '[') {
+                end = closing(']', start + 1);
+            } else {
+                final int bracket = expression.indexOf(']', start);
+                end = bracket < 0 ? expression.length() : bracket;
+            }
+            position = end;
+
+            final String text = expression.substring(start, end).trim();
+            try {
+                return SDL.value(text);
+            } catch (final RuntimeException e) {
+                throw new IllegalArgumentException("Invalid literal " + text + " in path \"" + expression + "\"", e);
+            }
+        }
+
+        /**
+         * @return the index after the closing quote or bracket
+         */
+        private int closing(final char close, final int from) {
+            for(int i = from; i < expression.length(); i++) {
+                final char c = expression.charAt(i);
+                if(c == '\\' && close != '`') {
+                    i++;
+                } else if(c == close) {
+                    return i + 1;
+                }
+            }
+            position = expression.length();
+            throw error("Expected " + close);
+        }
+
+        @Nullable
+        private String wildcardOrIdentifier() {
+            return consume("*") ? null : identifier();
+        }
+
+        private String identifier() {
+            final int start = position;
+            if(position < expression.length() && CharClass.isIdentifierStart(expression.charAt(position))) {
+                position++;
+                while(position < expression.length() && CharClass.isIdentifierPart(expression.charAt(position))) {
+                    position++;
+                }
+            }
+            if(start == position) {
+                throw error("Expected an identifier");
+            }
+            return expression.substring(start, position);
+        }
+
+        private void skipWhitespace() {
+            while(position < expression.length() && CharClass.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean consume(final String text) {
+            if(expression.startsWith(text, position)) {
+                position += text.length();
+                return true;
+            }
+            return false;
+        }
+
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(message + " at position " + position + " in path \"" + expression + "\"");
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>A pull parser for SDL. Rather than building a tree of {@link Tag} objects the reader
+ * is moved through the document one event at a time, making it possible to scan documents
+ * of any size while only holding the current line in memory.</p>
+ *
+ * <pre>
+ * try(SdlReader reader = new SdlReader(new FileReader("data.sdl"))) {
+ *     while(reader.hasNext()) {
+ *         if(reader.next() == SdlReader.Event.START_TAG &amp;&amp; "server".equals(reader.getName())) {
+ *             servers++;
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>Each tag produces a {@link Event#START_TAG} followed by a {@link Event#VALUE} for each
+ * value and an {@link Event#ATTRIBUTE} for each attribute. A tag with a body then produces
+ * {@link Event#START_CHILDREN}, the events of its children and finally {@link Event#END_TAG},
+ * a tag without a body produces {@link Event#END_TAG} straight away. Comments are reported
+ * as {@link Event#COMMENT} ahead of the tag on the same line.</p>
+ *
+ * @since 2.1.1
+ */
+public class SdlReader implements Closeable {
+
+    /**
+     * The events produced by an {@link SdlReader}
+     */
+    public enum Event {
+        START_TAG, VALUE, ATTRIBUTE, START_CHILDREN, END_TAG, COMMENT
+    }
+
+    private final Parser parser;
+    private final EventQueue queue = new EventQueue();
+
+    private EventRecord current;
+    private boolean finished;
+
+    /**
+     * @param reader A Reader for the SDL that should be read
+     */
+    public SdlReader(@NotNull final Reader reader) {
+        this.parser = new Parser(reader);
+    }
+
+    /**
+     * @param sdlText a string of SDLang
+     */
+    public SdlReader(@NotNull final String sdlText) {
+        this(new StringReader(sdlText));
+    }
+
+    /**
+     * @return true if there are more events
+     * @throws IOException If a problem is encountered with the reader
+     * @throws SDLParseException If the document is malformed
+     */
+    public boolean hasNext() throws IOException, SDLParseException {
+        while(queue.events.isEmpty() && !finished) {
+            if(!parser.next(queue)) {
+                close();
+            }
+        }
+        return !queue.events.isEmpty();
+    }
+
+    /**
+     * Advance to the next event
+     *
+     * @return the next event
+     * @throws IOException If a problem is encountered with the reader
+     * @throws SDLParseException If the document is malformed
+     * @throws NoSuchElementException If there are no more events
+     */
+    @NotNull
+    public Event next() throws IOException, SDLParseException {
+        if(!hasNext()) {
+            throw new NoSuchElementException("End of SDL document");
+        }
+        current = queue.events.poll();
+        return current.event;
+    }
+
+    /**
+     * @return the current event or null if {@link #next()} has not been called
+     */
+    @Nullable
+    public Event getEvent() {
+        return current != null ? current.event : null;
+    }
+
+    /**
+     * @return the tag name for {@link Event#START_TAG} and {@link Event#END_TAG} or the key
+     *     for {@link Event#ATTRIBUTE}, otherwise null
+     */
+    @Nullable
+    public String getName() {
+        return current != null ? current.name : null;
+    }
+
+    /**
+     * @return the namespace for {@link Event#START_TAG}, {@link Event#END_TAG} and
+     *     {@link Event#ATTRIBUTE} (an empty String when there is no namespace), otherwise null
+     */
+    @Nullable
+    public String getNamespace() {
+        return current != null ? current.namespace : null;
+    }
+
+    /**
+     * @return the value for {@link Event#VALUE} and {@link Event#ATTRIBUTE}, otherwise null
+     */
+    @Nullable
+    public SdlValue getSdlValue() {
+        return current != null ? current.value : null;
+    }
+
+    /**
+     * @return the Java object for {@link Event#VALUE} and {@link Event#ATTRIBUTE}, otherwise null
+     */
+    @Nullable
+    public Object getValue() {
+        return current != null && current.value != null ? current.value.getValue() : null;
+    }
+
+    /**
+     * @return the text of the comment (without the comment markers) for {@link Event#COMMENT},
+     *     otherwise null
+     */
+    @Nullable
+    public String getComment() {
+        return current != null ? current.comment : null;
+    }
+
+    /**
+     * @return the number of tags with a body that enclose the current position
+     */
+    public int getDepth() {
+        return current != null ? current.depth : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        parser.close();
+    }
+
+    /**
+     * Queues up the events for each line read by the parser
+     */
+    private static final class EventQueue implements SdlHandler {
+        private final Deque<EventRecord> events = new ArrayDeque<>();
+        private final Deque<EventRecord> openTags = new ArrayDeque<>();
+        private int depth;
+
+        @Override
+        public void startTag(@NotNull final String namespace, @NotNull final String name) {
+            final EventRecord start = new EventRecord(Event.START_TAG, namespace, name, null, null, depth);
+            openTags.push(start);
+            events.add(start);
+        }
+
+        @Override
+        public void value(@NotNull final SdlValue value) {
+            events.add(new EventRecord(Event.VALUE, null, null, value, null, depth));
+        }
+
+        @Override
+        public void attribute(@NotNull final String namespace, @NotNull final String key, @NotNull final SdlValue value) {
+            events.add(new EventRecord(Event.ATTRIBUTE, namespace, key, value, null, depth));
+        }
+
+        @Override
+        public void startChildren() {
+            openTags.element().body = true;
+            events.add(new EventRecord(Event.START_CHILDREN, null, null, null, null, ++depth));
+        }
+
+        @Override
+        public void endTag() {
+            final EventRecord start = openTags.pop();
+            if(start.body) {
+                depth--;
+            }
+            events.add(new EventRecord(Event.END_TAG, start.namespace, start.name, null, null, depth));
+        }
+
+        @Override
+        public void comment(@NotNull final String text) {
+            events.add(new EventRecord(Event.COMMENT, null, null, null, text, depth));
+        }
+    }
+
+    private static final class EventRecord {
+        private final Event event;
+        private final String namespace;
+        private final String name;
+        private final SdlValue value;
+        private final String comment;
+        private final int depth;
+        private boolean body;
+
+        private EventRecord(final Event event, final String namespace, final String name, final SdlValue value, final String comment, final int depth) {
+            this.event = event;
+            this.namespace = namespace;
+            this.name = name;
+            this.value = value;
+            this.comment = comment;
+            this.depth = depth;
+        }
+    }
+}
@@ -3,10 +3,8 @@ package com.singingbush.sdl;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.time.*;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
@@ -37,170 +35,238 @@ public class SdlValue<T> {
         return type;
     }
 
+    /**
+     * @return the value as an int, numbers held as primitives are returned without boxing
+     * @throws ClassCastException if the value is not a number
+     * @since 2.1.1
+     */
+    public int intValue() {
+        return ((Number) getValue()).intValue();
+    }
+
+    /**
+     * @return the value as a long, numbers held as primitives are returned without boxing
+     * @throws ClassCastException if the value is not a number
+     * @since 2.1.1
+     */
+    public long longValue() {
+        return ((Number) getValue()).longValue();
+    }
+
+    /**
+     * @return the value as a double, numbers held as primitives are returned without boxing
+     * @throws ClassCastException if the value is not a number
+     * @since 2.1.1
+     */
+    public double doubleValue() {
+        return ((Number) getValue()).doubleValue();
+    }
+
     /**
      * Create an SDL string representation for an object
      *
      * @return an SDL string representation for an object
      */
     public String getText() {
-        switch (type) {
-            case STRING:
-                return "\"" + escape(String.valueOf(value)) + "\"";
-            case STRING_MULTILINE:
-                return "`" + String.valueOf(value) + "`";
-            case CHARACTER:
-                return "'" + escape((Character)value) + "'";
-            case BOOLEAN:
-                return String.valueOf(value);
-            case NUMBER:
-                if(value instanceof BigDecimal) {
-                    return value.toString() + "BD";
-                } else if(value instanceof Float) {
-                    return value.toString() + "F";
-                } else if(value instanceof Long) {
-                    return value.toString() + "L";
-                }
-                break;
-            case DATE:
-                return DateTimeFormatter.ofPattern("y/M/d").format(LocalDate.class.cast(value));
-            case DATETIME:
-                if(LocalDateTime.class.isAssignableFrom(value.getClass())) {
-                    return DateTimeFormatter
-                        .ofPattern("y/M/d H:m:s.SSS") // .ofPattern("yyyy/MM/dd HH:mm:ss.SSS")
-                        .format(LocalDateTime.class.cast(value));
-                } else if(ZonedDateTime.class.isAssignableFrom(value.getClass())) {
-                    return DateTimeFormatter
-                        .ofPattern(SDL.DATE_TIME_FORMAT)
-                        //.ofPattern("y/M/d H:m:s.SSS-z")
-                        .withLocale(Locale.ENGLISH) // DO NOT REMOVE!! This is needed to force ZoneId to render as short version
-                        .format(ZonedDateTime.class.cast(value));
-                }
-                break;
-            case DURATION:
-                return timeSpanString(Duration.class.cast(value));
-            case BINARY:
-                final String data = new String(Base64.getEncoder().encode((byte[])value), StandardCharsets.UTF_8);
-                return String.format("[%s]", data);
-            case NULL:
-                return "null";
-        }
-        return String.valueOf(value); // shouldn't happen
+        final StringBuilder sb = new StringBuilder();
+        try {
+            appendTo(sb);
+        } catch (final IOException e) {
+            // a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
     }
 
-    private static String timeSpanString(@NotNull final Duration duration) {
-        final StringBuilder sb = new StringBuilder();
+    /**
+     * Write the same text as {@link #getText()} without creating a String, the digits of
+     * numbers, dates and time spans are written one at a time
+     *
+     * @param out where the text is written
+     * @throws IOException If there is an IO problem writing the text
+     * @since 2.1.1
+     */
+    public void appendTo(@NotNull final Appendable out) throws IOException {
+        LiteralFormatter.append(out, type, getValue());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        // primitive values are subclasses so compare on what's held rather than the class
+        if (!(o instanceof SdlValue)) return false;
+        final SdlValue<?> other = (SdlValue<?>) o;
+
+        final T value = getValue();
+        final Object otherValue = other.getValue();
+        final boolean sameValue = value != null ? value.getClass().isArray() ? otherValue != null && otherValue.getClass().isArray() && Arrays.equals(
+            byte[].class.cast(value),
+            byte[].class.cast(otherValue)
+        ) : Objects.equals(value, otherValue)
+            : otherValue == null;
+
+        return sameValue && type == other.type;
+    }
+
+    @Override
+    public int hashCode() {
+        final T value = getValue();
+        // binary values are equal by content so must hash by content too
+        final int valueHash = value instanceof byte[] ? Arrays.hashCode((byte[]) value) : Objects.hashCode(value);
+        return 31 * (31 + valueHash) + Objects.hashCode(type);
+    }
 
-//        final boolean negative = duration.isNegative();
-        long days = duration.toDays();
-        final long hours = days == 1L && duration.toHours() == 24L ? 24L : duration.toHours() % 24;
-        if(hours == 24L) {
-            days = 0L;
+    @Override
+    public String toString() {
+        return getText();
+    }
+
+    /**
+     * An int held without boxing, the Integer is only created if {@link #getValue()} is called
+     */
+    static final class IntValue extends SdlValue<Integer> {
+        private final int value;
+
+        IntValue(final int value) {
+            super(null, SdlType.NUMBER);
+            this.value = value;
         }
-        final long minutes = duration.toMinutes() % 60L;
-        final long seconds = duration.toMillis() % 60_000L / 1000;
-        final long milliseconds = duration.toMillis() % 1_000L;
 
+        @Override
+        public Integer getValue() {
+            return value;
+        }
 
-        if(days!=0) {
-            sb.append(days);
-            sb.append("d");
-            sb.append(":");
+        @Override
+        public int intValue() {
+            return value;
+        }
 
-            sb.append(padTo2(Math.abs(hours)));
-        } else {
-            sb.append(padTo2(hours));
+        @Override
+        public long longValue() {
+            return value;
         }
 
-        sb.append(":");
+        @Override
+        public double doubleValue() {
+            return value;
+        }
 
-        sb.append(padTo2(Math.abs(minutes)));
-        sb.append(":");
+        @Override
+        public void appendTo(@NotNull final Appendable out) throws IOException {
+            LiteralFormatter.appendLong(out, value);
+        }
+    }
 
-        sb.append(padTo2(Math.abs(seconds)));
+    /**
+     * A long held without boxing, the Long is only created if {@link #getValue()} is called
+     */
+    static final class LongValue extends SdlValue<Long> {
+        private final long value;
 
-        if(milliseconds!=0) {
-            sb.append(".");
+        LongValue(final long value) {
+            super(null, SdlType.NUMBER);
+            this.value = value;
+        }
 
-            String millis = "" + Math.abs(milliseconds);
-            if(millis.length()==1)
-                millis="00"+millis;
-            else if(millis.length()==2)
-                millis="0"+millis;
+        @Override
+        public Long getValue() {
+            return value;
+        }
 
-            sb.append(millis);
+        @Override
+        public int intValue() {
+            return (int) value;
         }
 
-        return sb.toString();
-    }
+        @Override
+        public long longValue() {
+            return value;
+        }
 
-    private static String padTo2(long val) {
-        if(val>-10 && val<0) {
-            return "-0" + Math.abs(val);
-        } else if(val>-1 && val<10) {
-            return "0" + val;
+        @Override
+        public double doubleValue() {
+            return value;
         }
 
-        return "" + val;
+        @Override
+        public void appendTo(@NotNull final Appendable out) throws IOException {
+            LiteralFormatter.appendLong(out, value);
+            out.append('L');
+        }
     }
 
-    private static String escape(String s) {
-        StringBuilder sb = new StringBuilder();
-
-        int size = s.length();
-        for(int i=0; i<size; i++) {
-            char c = s.charAt(i);
-            if(c=='\\')
-                sb.append("\\\\");
-            else if(c=='"')
-                sb.append("\\\"");
-            else if(c=='\t')
-                sb.append("\\t");
-            else if(c=='\r')
-                sb.append("\\r");
-            else if(c=='\n')
-                sb.append("\\n");
-            else
-                sb.append(c);
+    /**
+     * A float held without boxing, the Float is only created if {@link #getValue()} is called
+     */
+    static final class FloatValue extends SdlValue<Float> {
+        private final float value;
+
+        FloatValue(final float value) {
+            super(null, SdlType.NUMBER);
+            this.value = value;
         }
 
-        return sb.toString();
-    }
+        @Override
+        public Float getValue() {
+            return value;
+        }
 
-    private static String escape(Character ch) {
-        char c = ch.charValue();
-        switch(c) {
-            case '\\': return "\\\\";
-            case '\'': return "\\'";
-            case '\t': return "\\t";
-            case '\r': return "\\r";
-            case '\n': return "\\n";
-            default: return ""+c;
+        @Override
+        public int intValue() {
+            return (int) value;
         }
-    }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        final SdlValue<?> other = (SdlValue<?>) o;
+        @Override
+        public long longValue() {
+            return (long) value;
+        }
 
-        final boolean sameValue = value != null ? value.getClass().isArray() ? Arrays.equals(
-            byte[].class.cast(value),
-            byte[].class.cast(other.value)
-        ) : (value.getClass().isPrimitive() ? value == other.value : Objects.equals(value, other.value))
-            : value == other.value;
+        @Override
+        public double doubleValue() {
+            return value;
+        }
 
-        return sameValue && type == other.type;
+        @Override
+        public void appendTo(@NotNull final Appendable out) throws IOException {
+            LiteralFormatter.appendFloat(out, value);
+        }
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(value, type);
-    }
+    /**
+     * A double held without boxing, the Double is only created if {@link #getValue()} is called
+     */
+    static final class DoubleValue extends SdlValue<Double> {
+        private final double value;
 
-    @Override
-    public String toString() {
-        return getText();
-    }
+        DoubleValue(final double value) {
+            super(null, SdlType.NUMBER);
+            this.value = value;
+        }
+
+        @Override
+        public Double getValue() {
+            return value;
+        }
 
+        @Override
+        public int intValue() {
+            return (int) value;
+        }
+
+        @Override
+        public long longValue() {
+            return (long) value;
+        }
+
+        @Override
+        public double doubleValue() {
+            return value;
+        }
+
+        @Override
+        public void appendTo(@NotNull final Appendable out) throws IOException {
+            LiteralFormatter.appendDouble(out, value);
+        }
+    }
 }
@@ -0,0 +1,306 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * <p>Writes SDL a piece at a time without building a tree of {@link Tag} objects, so documents
+ * of any size can be written while only holding the output buffer in memory. The calls mirror
+ * those made to an {@link SdlHandler} by the parser:</p>
+ *
+ * <pre>
+ * try(SdlWriter writer = new SdlWriter(new FileWriter("servers.sdl"))) {
+ *     writer.startTag("servers").startChildren();
+ *     for(Server server : servers) {
+ *         writer.startTag("server")
+ *             .value(SDL.value(server.getHost(), false))
+ *             .attribute("port", SDL.value(server.getPort()))
+ *             .endTag();
+ *     }
+ *     writer.endTag();
+ * }
+ * </pre>
+ *
+ * <p>Every {@link #startTag(String)} must be matched by an {@link #endTag()}, with any values
+ * written before the attributes. Calling {@link #startChildren()} opens the body of the tag so
+ * that child tags can be written before the tag is ended. Values are written using
+ * {@link SdlValue#appendTo(Appendable)} so the output is the same as that of {@link Tag#toString()}.</p>
+ *
+ * <p>An SdlWriter is not thread safe.</p>
+ *
+ * @since 2.1.1
+ */
+public class SdlWriter implements Closeable, Flushable {
+
+    private final Writer out;
+    private final WriteOptions options;
+    private final String newLine;
+
+    private int depth;
+    private boolean inHeader;
+    private boolean pendingName;
+    private boolean attributes;
+
+    /**
+     * @param writer where the SDL is written
+     */
+    public SdlWriter(@NotNull final Writer writer) {
+        this(writer, WriteOptions.defaults());
+    }
+
+    /**
+     * @param writer where the SDL is written
+     * @param options how the SDL is laid out
+     */
+    public SdlWriter(@NotNull final Writer writer, @NotNull final WriteOptions options) {
+        this.out = writer;
+        this.options = options;
+        this.newLine = options.getLineSeparator();
+    }
+
+    /**
+     * @param out where the SDL is written, encoded as UTF-8
+     */
+    public SdlWriter(@NotNull final OutputStream out) {
+        this(new OutputStreamWriter(out, UTF_8));
+    }
+
+    /**
+     * Start a tag that is not in a namespace
+     *
+     * @param name the name of the tag, an anonymous tag is named "content"
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem writing the tag
+     * @throws IllegalArgumentException if the name is not a legal SDL identifier
+     * @throws IllegalStateException if the current tag has no body to write the tag in
+     */
+    @NotNull
+    public SdlWriter startTag(@NotNull final String name) throws IOException {
+        return startTag("", name);
+    }
+
+    /**
+     * Start a tag
+     *
+     * @param namespace the namespace of the tag or an empty String if it has none
+     * @param name the name of the tag, an anonymous tag is named "content"
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem writing the tag
+     * @throws IllegalArgumentException if the name or namespace is not a legal SDL identifier
+     * @throws IllegalStateException if the current tag has no body to write the tag in
+     */
+    @NotNull
+    public SdlWriter startTag(@NotNull final String namespace, @NotNull final String name) throws IOException {
+        checkNotInHeader("startTag");
+        if(!namespace.isEmpty()) {
+            SDL.validateIdentifier(namespace);
+        }
+        SDL.validateIdentifier(name);
+
+        writeIndent(depth);
+        inHeader = true;
+        attributes = false;
+        if(namespace.isEmpty() && "content".equals(name)) {
+            // anonymous tags are written as just their values
+            pendingName = true;
+        } else {
+            if(!namespace.isEmpty()) {
+                out.write(namespace);
+                out.write(':');
+            }
+            out.write(name);
+        }
+        return this;
+    }
+
+    /**
+     * Add a value to the current tag
+     *
+     * @param value the value
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem writing the value
+     * @throws IllegalStateException if there is no tag being started or its attributes have been written
+     */
+    @NotNull
+    public SdlWriter value(@NotNull final SdlValue value) throws IOException {
+        checkInHeader("value");
+        if(attributes) {
+            throw new IllegalStateException("Values must be written before attributes");
+        }
+        if(pendingName) {
+            pendingName = false;
+        } else {
+            out.write(' ');
+        }
+        value.appendTo(out);
+        return this;
+    }
+
+    /**
+     * Add an attribute that is not in a namespace to the current tag
+     *
+     * @param key the attribute key
+     * @param value the attribute value
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem writing the attribute
+     * @throws IllegalArgumentException if the key is not a legal SDL identifier
+     * @throws IllegalStateException if there is no tag being started
+     */
+    @NotNull
+    public SdlWriter attribute(@NotNull final String key, @NotNull final SdlValue value) throws IOException {
+        return attribute("", key, value);
+    }
+
+    /**
+     * Add an attribute to the current tag
+     *
+     * @param namespace the namespace of the attribute or an empty String if it has none
+     * @param key the attribute key
+     * @param value the attribute value
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem writing the attribute
+     * @throws IllegalArgumentException if the key or namespace is not a legal SDL identifier
+     * @throws IllegalStateException if there is no tag being started
+     */
+    @NotNull
+    public SdlWriter attribute(@NotNull final String namespace, @NotNull final String key, @NotNull final SdlValue value) throws IOException {
+        checkInHeader("attribute");
+        if(!namespace.isEmpty()) {
+            SDL.validateIdentifier(namespace);
+        }
+        SDL.validateIdentifier(key);
+
+        writePendingName();
+        attributes = true;
+        out.write(' ');
+        if(!namespace.isEmpty()) {
+            out.write(namespace);
+            out.write(':');
+        }
+        out.write(key);
+        out.write('=');
+        value.appendTo(out);
+        return this;
+    }
+
+    /**
+     * Open the body of the current tag so that its children can be written
+     *
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem writing the body
+     * @throws IllegalStateException if there is no tag being started
+     */
+    @NotNull
+    public SdlWriter startChildren() throws IOException {
+        checkInHeader("startChildren");
+        writePendingName();
+        out.write(" {");
+        out.write(newLine);
+        inHeader = false;
+        depth++;
+        return this;
+    }
+
+    /**
+     * End the current tag, closing its body if it has one
+     *
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem ending the tag
+     * @throws IllegalStateException if there is no open tag
+     */
+    @NotNull
+    public SdlWriter endTag() throws IOException {
+        if(inHeader) {
+            writePendingName();
+            inHeader = false;
+        } else if(depth > 0) {
+            writeIndent(--depth);
+            out.write('}');
+        } else {
+            throw new IllegalStateException("endTag() called without an open tag");
+        }
+        out.write(newLine);
+        return this;
+    }
+
+    /**
+     * Write a comment ahead of the next tag. Each line of the text is written as a separate
+     * line comment.
+     *
+     * @param text the text of the comment
+     * @return this SdlWriter
+     * @throws IOException If there is an IO problem writing the comment
+     * @throws IllegalStateException if a tag is being started
+     */
+    @NotNull
+    public SdlWriter comment(@NotNull final String text) throws IOException {
+        checkNotInHeader("comment");
+        int start = 0;
+        do {
+            int end = text.indexOf('\n', start);
+            if(end < 0) {
+                end = text.length();
+            }
+            writeIndent(depth);
+            out.write("// ");
+            out.write(text, start, end - start);
+            out.write(newLine);
+            start = end + 1;
+        } while(start <= text.length());
+        return this;
+    }
+
+    /**
+     * @return the number of tags whose bodies are open
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Close the underlying writer. Any tags that are still open are left unfinished.
+     *
+     * @throws IOException If there is an IO problem closing the writer
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writePendingName() throws IOException {
+        if(pendingName) {
+            // an anonymous tag without values needs its name to be read back
+            out.write("content");
+            pendingName = false;
+        }
+    }
+
+    private void writeIndent(final int level) throws IOException {
+        options.writeIndent(out, level);
+    }
+
+    private void checkInHeader(final String method) {
+        if(!inHeader) {
+            throw new IllegalStateException(method + "() must follow startTag()");
+        }
+    }
+
+    private void checkNotInHeader(final String method) {
+        if(inHeader) {
+            throw new IllegalStateException(method + "() cannot be called until startChildren() or endTag() has been called for the current tag");
+        }
+    }
+}
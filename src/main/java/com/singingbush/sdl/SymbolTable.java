@@ -0,0 +1,140 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Interns the identifiers read by a {@link Parser} so that a tag name, namespace or
+ * attribute key that appears many times in a document is held as a single String. Lookups are
+ * made straight from the line being lexed, a new String is only created the first time an
+ * identifier is seen.</p>
+ *
+ * <p>Each parser has its own table unless one is given to {@link Parser#withSymbolTable(SymbolTable)},
+ * which allows the names in several documents to be shared. A table can be used by any number
+ * of parsers at the same time. Once a table holds its maximum number of symbols any new
+ * identifiers are simply not interned, so documents full of unique keys can't grow it without
+ * limit.</p>
+ *
+ * @since 2.1.1
+ */
+public final class SymbolTable {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+    private final int maxSize;
+
+    // open addressing with linear probing, kept at most half full. Entries only ever go from
+    // null to a String so readers can search without locking, a miss is checked again under the lock.
+    private volatile String[] table = new String[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Create a table that holds up to 65536 symbols
+     */
+    public SymbolTable() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the most symbols that will be held
+     * @throws IllegalArgumentException if maxSize is negative
+     */
+    public SymbolTable(final int maxSize) {
+        if(maxSize < 0) {
+            throw new IllegalArgumentException("maxSize cannot be negative");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the number of symbols held
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param text holds the identifier
+     * @param start index of the first character of the identifier
+     * @param end index after the last character of the identifier
+     * @return the interned String for the characters between start and end
+     */
+    @NotNull
+    String intern(@NotNull final CharSequence text, final int start, final int end) {
+        // the same hash as String.hashCode() so it can be checked against the cached hash of each entry
+        int h = 0;
+        for(int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+
+        final String found = find(table, h, text, start, end);
+        return found != null ? found : add(h, text, start, end);
+    }
+
+    private synchronized String add(final int h, final CharSequence text, final int start, final int end) {
+        String[] t = table;
+        final String found = find(t, h, text, start, end);
+        if(found != null) {
+            return found;
+        }
+
+        final String symbol = text.subSequence(start, end).toString();
+        if(size == maxSize) {
+            return symbol;
+        }
+
+        if((size + 1) * 2 > t.length) {
+            final String[] grown = new String[t.length * 2];
+            for(final String s : t) {
+                if(s != null) {
+                    insert(grown, s);
+                }
+            }
+            insert(grown, symbol);
+            table = grown;
+        } else {
+            insert(t, symbol);
+        }
+        size++;
+        return symbol;
+    }
+
+    private static String find(final String[] t, final int h, final CharSequence text, final int start, final int end) {
+        final int mask = t.length - 1;
+        for(int i = spread(h) & mask; ; i = (i + 1) & mask) {
+            final String s = t[i];
+            if(s == null) {
+                return null;
+            }
+            if(s.hashCode() == h && matches(s, text, start, end)) {
+                return s;
+            }
+        }
+    }
+
+    private static void insert(final String[] t, final String symbol) {
+        final int mask = t.length - 1;
+        int i = spread(symbol.hashCode()) & mask;
+        while(t[i] != null) {
+            i = (i + 1) & mask;
+        }
+        t[i] = symbol;
+    }
+
+    private static boolean matches(final String s, final CharSequence text, final int start, final int end) {
+        final int length = end - start;
+        if(s.length() != length) {
+            return false;
+        }
+        for(int i = 0; i < length; i++) {
+            if(s.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(final int h) {
+        return h ^ (h >>> 16);
+    }
+}
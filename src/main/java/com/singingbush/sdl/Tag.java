@@ -24,15 +24,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.net.URL;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 /**
  * <p>SDL (Simple Declarative Language) documents are made up of Tags.  Tags
@@ -342,14 +342,28 @@ public class Tag implements Serializable {
 	private final String name;
 
     private String comment;
-	private List<SdlValue> values = new ArrayList();
-	private List<SdlValue> valuesView = Collections.unmodifiableList(values);
-	private Map<String,String> attributeToNamespace = new HashMap<>();
-	//private Map<String,String> attributeToNamespaceView = Collections.unmodifiableMap(attributeToNamespace);
-	private SortedMap<String,SdlValue> attributes = new TreeMap<>();
-	//private SortedMap<String,SdlValue> attributesView = Collections.unmodifiableSortedMap(attributes);
-	private List<Tag> children = new ArrayList<>();
-	private List<Tag> childrenView = Collections.unmodifiableList(children);
+
+	// Most tags are leaves with a value or two and a few attributes, so rather than a set of
+	// collections per tag the values and attributes are held in arrays that are only as large
+	// as they need to be. Attributes are kept sorted by key in three parallel arrays and the
+	// list of children is only created when the first child is added.
+	private SdlValue[] values = NO_VALUES;
+	private int valueCount;
+	private String[] attributeKeys = NO_STRINGS;
+	private String[] attributeNamespaces = NO_STRINGS;
+	private SdlValue[] attributeValues = NO_VALUES;
+	private int attributeCount;
+	private List<Tag> children;
+	private List<Tag> childrenView;
+	private transient ChildIndex childIndex;
+	private transient AttributeView<SdlValue> attributesView;
+	private transient AttributeView<String> namespacesView;
+
+	/** Tags with fewer children than this are searched without building an index */
+	static final int INDEX_THRESHOLD = 8;
+
+	private static final SdlValue[] NO_VALUES = new SdlValue[0];
+	private static final String[] NO_STRINGS = new String[0];
 
 	/**
 	 * Creates an empty tag.
@@ -399,7 +413,14 @@ public class Tag implements Serializable {
 	 * @param child The child to add
 	 */
 	public void addChild(Tag child) {
+		if(children == null) {
+			children = new ArrayList<>(4);
+			childrenView = Collections.unmodifiableList(children);
+		}
 		children.add(child);
+
+		if(childIndex != null)
+			childIndex.add(child);
 	}
 
 	/**
@@ -409,7 +430,14 @@ public class Tag implements Serializable {
 	 * @return true if the child exists and is removed
 	 */
 	public boolean removeChild(Tag child) {
-		return children.remove(child);
+		final int i = children != null ? children.indexOf(child) : -1;
+		if(i < 0)
+			return false;
+
+		final Tag removed = children.remove(i);
+		if(childIndex != null)
+			childIndex.remove(removed);
+		return true;
 	}
 
 	/**
@@ -420,10 +448,10 @@ public class Tag implements Serializable {
 	 * @throws IllegalArgumentException if the value is not a legal SDL type
 	 */
 	public void setValue(SdlValue value) {
-		if(values.isEmpty()) {
+		if(valueCount == 0) {
             addValue(value);
         } else {
-            values.set(0, value); // SDL.coerceOrFail(value));
+            values[0] = value; // SDL.coerceOrFail(value));
         }
 	}
 
@@ -435,7 +463,7 @@ public class Tag implements Serializable {
 	 */
 	@Nullable
 	public SdlValue getSdlValue() {
-        return values.isEmpty() ? null : values.get(0);
+        return valueCount == 0 ? null : values[0];
 	}
 
     /**
@@ -444,7 +472,7 @@ public class Tag implements Serializable {
      */
     @Nullable
     public Object getValue() {
-        return values.isEmpty() ? null : getValue(0);
+        return valueCount == 0 ? null : getValue(0);
     }
 
     /**
@@ -456,7 +484,7 @@ public class Tag implements Serializable {
      */
     @Nullable
     public <T> T getValue(final Class<T> clazz) {
-        return values.isEmpty() ? null : clazz.cast(getValue(0));
+        return valueCount == 0 ? null : clazz.cast(getValue(0));
     }
 
     /**
@@ -467,7 +495,7 @@ public class Tag implements Serializable {
      */
     @Nullable
     public Object getValue(final int index) {
-        return values.isEmpty() || values.size() <= index ? null : values.get(index).getValue();
+        return valueCount <= index ? null : values[index].getValue();
     }
 
 	////////////////////////////////////////////////////////////////////////////
@@ -498,7 +526,27 @@ public class Tag implements Serializable {
 	 * @return The value assuming an int
 	 */
 	public int intValue() {
-		return ((Number)getValue()).intValue();
+		return getSdlValue().intValue();
+	}
+
+	/**
+	 * A convenience method that returns the first value as a long
+	 *
+	 * @return The value assuming a number
+	 * @since 2.1.1
+	 */
+	public long longValue() {
+		return getSdlValue().longValue();
+	}
+
+	/**
+	 * A convenience method that returns the first value as a double
+	 *
+	 * @return The value assuming a number
+	 * @since 2.1.1
+	 */
+	public double doubleValue() {
+		return getSdlValue().doubleValue();
 	}
 
 	/**
@@ -525,15 +573,18 @@ public class Tag implements Serializable {
 	@Deprecated
 	@Nullable
 	public Tag getChild(String childName, boolean recursive) {
-		for(final Tag t : children) {
+		if(recursive)
+			return findDescendants(t -> t.getName().equals(childName), null);
+
+		final ChildIndex index = childIndex();
+		if(index != null) {
+			final List<Tag> named = index.byName.get(childName);
+			return named != null ? named.get(0) : null;
+		}
+
+		for(final Tag t : getChildren()) {
 			if(t.getName().equals(childName))
 				return t;
-
-			if(recursive) {
-				Tag rc = t.getChild(childName, true);
-				if(rc!=null)
-					return rc;
-			}
 		}
 
 		return null;
@@ -559,12 +610,22 @@ public class Tag implements Serializable {
 	 */
 	public List<Tag> getChildren(String childName, boolean recursive) {
 		List<Tag> kids = new ArrayList<Tag>();
-		for(Tag t:children) {
+		if(recursive) {
+			findDescendants(t -> t.getName().equals(childName), kids);
+			return kids;
+		}
+
+		final ChildIndex index = childIndex();
+		if(index != null) {
+			final List<Tag> named = index.byName.get(childName);
+			if(named != null)
+				kids.addAll(named);
+			return kids;
+		}
+
+		for(Tag t:getChildren()) {
 			if(t.getName().equals(childName))
 				kids.add(t);
-
-			if(recursive)
-				kids.addAll(t.getChildren(childName, true));
 		}
 
 		return kids;
@@ -592,18 +653,112 @@ public class Tag implements Serializable {
 	 */
 	public List<Tag> getChildrenForNamespace(String namespace, boolean recursive) {
 		final List<Tag> kids = new ArrayList<>();
+		if(recursive) {
+			findDescendants(t -> t.getNamespace().equals(namespace), kids);
+			return kids;
+		}
 
-		for(final Tag t : children) {
+		final ChildIndex index = childIndex();
+		if(index != null) {
+			final List<Tag> inNamespace = index.byNamespace.get(namespace);
+			if(inNamespace != null)
+				kids.addAll(inNamespace);
+			return kids;
+		}
+
+		for(final Tag t : getChildren()) {
 			if(t.getNamespace().equals(namespace))
 				kids.add(t);
-
-			if(recursive)
-				kids.addAll(t.getChildrenForNamespace(namespace, true));
 		}
 
 		return kids;
 	}
 
+	/**
+	 * The index of children by name and namespace is built the first time a tag with
+	 * enough children is searched and is then kept up to date by addChild and removeChild.
+	 *
+	 * @return The index or null if there are too few children to need one
+	 */
+	@Nullable
+	private ChildIndex childIndex() {
+		ChildIndex index = childIndex;
+		if(index == null && children != null && children.size() >= INDEX_THRESHOLD) {
+			index = new ChildIndex(children);
+			childIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Children grouped by name and by namespace, each group is in document order
+	 */
+	private static final class ChildIndex {
+		private final Map<String, List<Tag>> byName = new HashMap<>();
+		private final Map<String, List<Tag>> byNamespace = new HashMap<>();
+
+		private ChildIndex(final List<Tag> children) {
+			for(final Tag child : children)
+				add(child);
+		}
+
+		private void add(final Tag child) {
+			byName.computeIfAbsent(child.getName(), k -> new ArrayList<>(2)).add(child);
+			byNamespace.computeIfAbsent(child.getNamespace(), k -> new ArrayList<>(2)).add(child);
+		}
+
+		private void remove(final Tag child) {
+			remove(byName, child.getName(), child);
+			remove(byNamespace, child.getNamespace(), child);
+		}
+
+		private static void remove(final Map<String, List<Tag>> index, final String key, final Tag child) {
+			final List<Tag> group = index.get(key);
+			for(int i = 0; i < group.size(); i++) {
+				if(group.get(i) == child) {
+					group.remove(i);
+					break;
+				}
+			}
+			if(group.isEmpty())
+				index.remove(key);
+		}
+	}
+
+	/**
+	 * Search all descendents depth first in document order. An explicit stack is used rather
+	 * than recursion so that the depth of the tree is not limited by the size of the call stack.
+	 *
+	 * @param filter The test for a matching tag
+	 * @param matches The list to add all matches to or null to stop at the first match
+	 * @return The first match when matches is null, otherwise null
+	 */
+	@Nullable
+	private Tag findDescendants(final Predicate<Tag> filter, @Nullable final List<Tag> matches) {
+		final Deque<Iterator<Tag>> stack = new ArrayDeque<>();
+		stack.push(getChildren().iterator());
+
+		while(!stack.isEmpty()) {
+			final Iterator<Tag> siblings = stack.peek();
+			if(!siblings.hasNext()) {
+				stack.pop();
+				continue;
+			}
+
+			final Tag t = siblings.next();
+			if(filter.test(t)) {
+				if(matches == null)
+					return t;
+				matches.add(t);
+			}
+
+			if(t.children != null && !t.children.isEmpty())
+				stack.push(t.children.iterator());
+		}
+
+		return null;
+	}
+
 	/**
 	 * Get the values for all children with the given name.  If the child has
 	 * more than one value, all the values will be added as a list.  If the
@@ -639,7 +794,9 @@ public class Tag implements Serializable {
 	 * @param value The value to add
 	 */
 	public void addValue(SdlValue value) {
-		values.add(value);
+		if(valueCount == values.length)
+			values = Arrays.copyOf(values, Math.max(1, valueCount * 2));
+		values[valueCount++] = value;
 	}
 
 	/**
@@ -649,7 +806,14 @@ public class Tag implements Serializable {
 	 * @return true If the value exists and is removed
 	 */
 	public boolean removeValue(SdlValue value) {
-		return values.remove(value);
+		for(int i = 0; i < valueCount; i++) {
+			if(Objects.equals(value, values[i])) {
+				System.arraycopy(values, i + 1, values, i, valueCount - i - 1);
+				values[--valueCount] = null;
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -658,10 +822,12 @@ public class Tag implements Serializable {
 	 * @return An immutable view of the values.
 	 */
 	public List<Object> getValues() {
-		return valuesView.stream()
-            .filter(Objects::nonNull)
-            .map(SdlValue::getValue)
-            .collect(Collectors.toList());
+		final List<Object> list = new ArrayList<>(valueCount);
+		for(int i = 0; i < valueCount; i++) {
+			if(values[i] != null)
+				list.add(values[i].getValue());
+		}
+		return list;
 	}
 
 	/*
@@ -716,8 +882,31 @@ public class Tag implements Serializable {
 			SDL.validateIdentifier(namespace);
 		SDL.validateIdentifier(key);
 
-		attributeToNamespace.put(key, namespace);
-		attributes.put(key, value); //SDL.coerceOrFail(value));
+		int i = indexOfAttribute(key);
+		if(i < 0) {
+			i = -(i + 1);
+			if(attributeCount == attributeKeys.length) {
+				final int capacity = Math.max(1, attributeCount * 2);
+				attributeKeys = Arrays.copyOf(attributeKeys, capacity);
+				attributeNamespaces = Arrays.copyOf(attributeNamespaces, capacity);
+				attributeValues = Arrays.copyOf(attributeValues, capacity);
+			}
+			final int moved = attributeCount - i;
+			System.arraycopy(attributeKeys, i, attributeKeys, i + 1, moved);
+			System.arraycopy(attributeNamespaces, i, attributeNamespaces, i + 1, moved);
+			System.arraycopy(attributeValues, i, attributeValues, i + 1, moved);
+			attributeKeys[i] = key;
+			attributeCount++;
+		}
+		attributeNamespaces[i] = namespace;
+		attributeValues[i] = value; //SDL.coerceOrFail(value));
+	}
+
+	/**
+	 * @return the index of the key in the sorted attribute keys, or (-(insertion point) - 1) if it isn't there
+	 */
+	private int indexOfAttribute(final String key) {
+		return Arrays.binarySearch(attributeKeys, 0, attributeCount, key);
 	}
 
 	/**
@@ -728,10 +917,24 @@ public class Tag implements Serializable {
 	 */
 	@Nullable
 	public Object getAttribute(final String key) {
-        final SdlValue value = attributes.get(key);
+        final int i = key != null ? indexOfAttribute(key) : -1;
+        final SdlValue value = i >= 0 ? attributeValues[i] : null;
         return value != null ? value.getValue() : null;
 	}
 
+	/**
+	 * @param namespace the namespace the attribute must be in, or null for any namespace
+	 * @param key attribute name
+	 * @return the value for the key if such a key exists in the namespace
+	 */
+	@Nullable
+	SdlValue getAttributeValue(@Nullable final String namespace, @NotNull final String key) {
+		final int i = indexOfAttribute(key);
+		if(i < 0 || (namespace != null && !namespace.equals(attributeNamespaces[i])))
+			return null;
+		return attributeValues[i];
+	}
+
 	/**
 	 * Remove the attribute value associated with the given key.
 	 *
@@ -739,16 +942,31 @@ public class Tag implements Serializable {
 	 * @return The value for the attribute key if the key exists
 	 */
 	public Object removeAttribute(String attributeKey) {
-		return attributes.remove(attributeKey);
+		final int i = attributeKey != null ? indexOfAttribute(attributeKey) : -1;
+		if(i < 0)
+			return null;
+
+		final SdlValue value = attributeValues[i];
+		final int moved = attributeCount - i - 1;
+		System.arraycopy(attributeKeys, i + 1, attributeKeys, i, moved);
+		System.arraycopy(attributeNamespaces, i + 1, attributeNamespaces, i, moved);
+		System.arraycopy(attributeValues, i + 1, attributeValues, i, moved);
+		attributeCount--;
+		attributeKeys[attributeCount] = null;
+		attributeNamespaces[attributeCount] = null;
+		attributeValues[attributeCount] = null;
+		return value;
 	}
 
 	/**
-	 * Get an immutable view of the attributes.
+	 * Get an immutable view of the attributes, sorted by key.
 	 *
 	 * @return An immutable view of the attributes.
 	 */
 	public SortedMap<String, SdlValue> getAttributes() {
-		return Collections.unmodifiableSortedMap(attributes);
+		if(attributesView == null)
+			attributesView = new AttributeView<>(false);
+		return attributesView;
 	}
 
 	/**
@@ -761,7 +979,10 @@ public class Tag implements Serializable {
 	 *     is not a legal SDL type
 	 */
 	public void setAttributes(Map<String,SdlValue> attributes) {
-		this.attributes.clear();
+		Arrays.fill(attributeKeys, 0, attributeCount, null);
+		Arrays.fill(attributeNamespaces, 0, attributeCount, null);
+		Arrays.fill(attributeValues, 0, attributeCount, null);
+		attributeCount = 0;
 
 		if(attributes!=null) {
 
@@ -778,7 +999,9 @@ public class Tag implements Serializable {
 	 * @return An immutable view of the namespace to attribute key map.
 	 */
 	public Map<String,String> getAttributeNamespaces() {
-		return attributeToNamespace;
+		if(namespacesView == null)
+			namespacesView = new AttributeView<>(true);
+		return namespacesView;
 	}
 
 	/**
@@ -793,24 +1016,124 @@ public class Tag implements Serializable {
 
 		final TreeMap<String, Object> atts = new TreeMap<String,Object>();
 
-		for(final Entry<String, String> e : attributeToNamespace.entrySet()) {
-
-			if(e.getValue().equals(namespace)) {
-				String key = e.getKey();
-				atts.put(key, getAttribute(key));
+		for(int i = 0; i < attributeCount; i++) {
+			if(attributeNamespaces[i].equals(namespace)) {
+				final SdlValue value = attributeValues[i];
+				atts.put(attributeKeys[i], value != null ? value.getValue() : null);
 			}
 		}
 
 		return Collections.unmodifiableSortedMap(atts);
 	}
 
+	/**
+	 * A read-only view of the attribute arrays, which are kept sorted by key, so the view follows
+	 * later changes to the attributes without copying them. Sub maps are copies.
+	 */
+	private final class AttributeView<V> extends AbstractMap<String, V> implements SortedMap<String, V> {
+		private final boolean namespaces;
+		private Set<Entry<String, V>> entries;
+
+		private AttributeView(final boolean namespaces) {
+			this.namespaces = namespaces;
+		}
+
+		@SuppressWarnings("unchecked")
+		private V valueAt(final int i) {
+			return (V) (namespaces ? attributeNamespaces[i] : attributeValues[i]);
+		}
+
+		@Override
+		public int size() {
+			return attributeCount;
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			return key instanceof String && indexOfAttribute((String) key) >= 0;
+		}
+
+		@Override
+		public V get(final Object key) {
+			final int i = key instanceof String ? indexOfAttribute((String) key) : -1;
+			return i >= 0 ? valueAt(i) : null;
+		}
+
+		@Override
+		public Set<Entry<String, V>> entrySet() {
+			if(entries == null) {
+				entries = new AbstractSet<Entry<String, V>>() {
+					@Override
+					public int size() {
+						return attributeCount;
+					}
+
+					@Override
+					public Iterator<Entry<String, V>> iterator() {
+						return new Iterator<Entry<String, V>>() {
+							private int next;
+
+							@Override
+							public boolean hasNext() {
+								return next < attributeCount;
+							}
+
+							@Override
+							public Entry<String, V> next() {
+								if(!hasNext())
+									throw new NoSuchElementException();
+								final int i = next++;
+								return new SimpleImmutableEntry<>(attributeKeys[i], valueAt(i));
+							}
+						};
+					}
+				};
+			}
+			return entries;
+		}
+
+		@Override
+		public Comparator<? super String> comparator() {
+			return null;
+		}
+
+		@Override
+		public String firstKey() {
+			if(attributeCount == 0)
+				throw new NoSuchElementException();
+			return attributeKeys[0];
+		}
+
+		@Override
+		public String lastKey() {
+			if(attributeCount == 0)
+				throw new NoSuchElementException();
+			return attributeKeys[attributeCount - 1];
+		}
+
+		@Override
+		public SortedMap<String, V> subMap(final String fromKey, final String toKey) {
+			return Collections.unmodifiableSortedMap(new TreeMap<>(this).subMap(fromKey, toKey));
+		}
+
+		@Override
+		public SortedMap<String, V> headMap(final String toKey) {
+			return Collections.unmodifiableSortedMap(new TreeMap<>(this).headMap(toKey));
+		}
+
+		@Override
+		public SortedMap<String, V> tailMap(final String fromKey) {
+			return Collections.unmodifiableSortedMap(new TreeMap<>(this).tailMap(fromKey));
+		}
+	}
+
 	/**
 	 * Get all the children for this Tag
 	 *
 	 * @return An immutable view of the children.
 	 */
 	public List<Tag> getChildren() {
-		return childrenView;
+		return childrenView != null ? childrenView : Collections.emptyList();
 	}
 
 	/**
@@ -822,15 +1145,10 @@ public class Tag implements Serializable {
 	 */
 	public List<Tag> getChildren(boolean recursively) {
 		if(!recursively)
-			return childrenView;
+			return getChildren();
 
 		ArrayList<Tag> kids = new ArrayList();
-		for(Tag t:children) {
-			kids.add(t);
-
-			if(recursively)
-				kids.addAll(t.getChildren(true));
-		}
+		findDescendants(t -> true, kids);
 
 		return Collections.unmodifiableList(kids);
 	}
@@ -936,8 +1254,9 @@ public class Tag implements Serializable {
 	 * @throws IOException If there is an IO problem during the write operation
 	 */
 	public void write(File file, boolean includeRoot) throws IOException {
-		write(new OutputStreamWriter(new FileOutputStream(file),"UTF8"),
-				includeRoot);
+		try(final FileOutputStream out = new FileOutputStream(file)) {
+			write(new Utf8Writer(out), includeRoot);
+		}
 	}
 
 	/**
@@ -949,15 +1268,15 @@ public class Tag implements Serializable {
 	 * @throws IOException If there is an IO problem during the write operation
 	 */
 	public void write(Writer writer, boolean includeRoot) throws IOException {
-		String newLine = System.getProperty("line.separator");
+		final WriteOptions options = WriteOptions.defaults();
 
 		if(includeRoot) {
-			writer.write(toString());
+			writeTo(writer, options);
 		} else {
-			for(Iterator i=children.iterator();i.hasNext();) {
-				writer.write(String.valueOf(i.next()));
+			for(Iterator<Tag> i=getChildren().iterator();i.hasNext();) {
+				i.next().writeTo(writer, options);
 				if(i.hasNext())
-					writer.write(newLine);
+					writer.write(options.getLineSeparator());
 			}
 		}
 
@@ -973,27 +1292,72 @@ public class Tag implements Serializable {
 	 */
 	@Override
 	public String toString() {
-		return toString("");
+		final StringBuilder builder = new StringBuilder();
+		try {
+			writeTo(builder, WriteOptions.defaults());
+		} catch(final IOException e) {
+			// a StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		return builder.toString();
 	}
 
 	/**
-	 * @param linePrefix A prefix to insert before every line.
-	 * @return A string representation of this tag using SDL
+	 * Write this tag and all of its descendants as SDL. Everything is appended to the one
+	 * Appendable and indents come from a table held by the options, so the time taken grows
+	 * with the size of the output rather than with the depth of the tree. Nothing is written
+	 * after the closing line of this tag.
+	 *
+	 * @param out where the SDL is written, which is not flushed or closed
+	 * @param options how the SDL is laid out
+	 * @throws IOException If there is an IO problem during the write operation
+	 * @since 2.1.1
 	 *
 	 * TODO: break up long lines using the backslash
 	 */
-	private String toString(@Nullable String linePrefix) {
-		String newLine = System.getProperty("line.separator");
-
-		if(linePrefix==null)
-			linePrefix="";
+	public void writeTo(@NotNull final Appendable out, @NotNull final WriteOptions options) throws IOException {
+		final String newLine = options.getLineSeparator();
+
+		// the children are written using an explicit stack of the tags whose bodies are
+		// open rather than by recursion, so any depth of tree can be written
+		final Deque<Body> open = new ArrayDeque<>();
+
+		if(appendTag(out, 0, options))
+			open.push(new Body(this, 0));
+
+		while(!open.isEmpty()) {
+			final Body body = open.peek();
+
+			if(body.next < body.tag.children.size()) {
+				final Tag child = body.tag.children.get(body.next++);
+				if(child.appendTag(out, body.level + 1, options)) {
+					open.push(new Body(child, body.level + 1));
+				} else {
+					out.append(newLine);
+				}
+			} else {
+				open.pop();
+				options.writeIndent(out, body.level);
+				out.append('}');
+				if(!open.isEmpty())
+					out.append(newLine);
+			}
+		}
+	}
 
-		final StringBuilder builder = new StringBuilder(linePrefix);
+	/**
+	 * Append everything but the children of this tag
+	 *
+	 * @return true if the tag has children, in which case the opening brace has been written
+	 */
+	private boolean appendTag(final Appendable out, final int level, final WriteOptions options) throws IOException {
+		options.writeIndent(out, level);
 
 		if(comment != null && !comment.isEmpty()) {
             final String[] lines = comment.split("\n");
             for (final String line : lines) {
-                builder.append("// ").append(line).append(newLine).append(linePrefix);
+                out.append("// ").append(line).append(options.getLineSeparator());
+                options.writeIndent(out, level);
             }
         }
 
@@ -1002,81 +1366,249 @@ public class Tag implements Serializable {
 			skipValueSpace=true;
 		} else {
 			if(namespace != null && !"".equals(namespace)) {
-                builder.append(namespace).append(":");
+                out.append(namespace).append(':');
             }
-			builder.append(name);
+			out.append(name);
 		}
 		// output values
-		if(values != null && !values.isEmpty()) {
-            for(final SdlValue value : values) {
-
-                if(skipValueSpace) {
-                    skipValueSpace=false;
-                } else {
-                    builder.append(" ");
-                }
-                builder.append(value.getText()); //builder.append(SDL.format(value));
-
-//				if(value != null) {
-//                    if(skipValueSpace) {
-//                        skipValueSpace=false;
-//                    } else {
-//                        builder.append(" ");
-//                    }
-//                    builder.append(value.getText()); //builder.append(SDL.format(value));
-//                }
+		for(int i = 0; i < valueCount; i++) {
+			if(skipValueSpace) {
+				skipValueSpace=false;
+			} else {
+				out.append(' ');
 			}
+			values[i].appendTo(out);
 		}
 
 		// output attributes
-		if(attributes != null && !attributes.isEmpty()) {
-			for(Iterator<Entry<String,SdlValue>> i = attributes.entrySet().iterator(); i.hasNext();) {
-				builder.append(" ");
+		for(int i = 0; i < attributeCount; i++) {
+			out.append(' ');
 
-                final Entry<String,SdlValue> e = i.next();
-				final String key=e.getKey();
-                final String attNamespace = attributeToNamespace.get(key);
-
-				if(attNamespace != null && !attNamespace.isEmpty()) {
-                    builder.append(attNamespace).append(":");
-                }
-				builder.append(key).append("=");
-				builder.append(attributes.get(key).getText());
+			final String attNamespace = attributeNamespaces[i];
+			if(attNamespace != null && !attNamespace.isEmpty()) {
+				out.append(attNamespace).append(':');
 			}
+			out.append(attributeKeys[i]).append('=');
+			attributeValues[i].appendTo(out);
 		}
 
-		// output children
+		// open the body, the children are written by the caller
 		if(children != null && !children.isEmpty()) {
-			builder.append(" {" + newLine);
-			for(final Tag t : children) {
-				builder.append(t.toString(linePrefix + "    ") + newLine);
+			out.append(" {").append(options.getLineSeparator());
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * A tag whose children are being written by {@link #writeTo(Appendable, WriteOptions)}
+	 * or {@link #replayTo(SdlHandler)}
+	 */
+	private static final class Body {
+		private final Tag tag;
+		private final int level;
+		private int next;
+
+		private Body(final Tag tag, final int level) {
+			this.tag = tag;
+			this.level = level;
+		}
+	}
+
+	/**
+	 * Make the calls to a handler that the parser would make when reading this tag and its
+	 * descendants. A comment is passed to the handler as a whole rather than line by line.
+	 */
+	void replayTo(@NotNull final SdlHandler handler) {
+		final Deque<Body> open = new ArrayDeque<>();
+
+		if(replayHeader(handler))
+			open.push(new Body(this, 0));
+		else
+			handler.endTag();
+
+		while(!open.isEmpty()) {
+			final Body body = open.peek();
+
+			if(body.next < body.tag.children.size()) {
+				final Tag child = body.tag.children.get(body.next++);
+				if(child.replayHeader(handler)) {
+					open.push(new Body(child, body.level + 1));
+				} else {
+					handler.endTag();
+				}
+			} else {
+				open.pop();
+				handler.endTag();
 			}
-			builder.append(linePrefix + "}");
 		}
+	}
 
-		return builder.toString();
+	/**
+	 * Replay everything but the children of this tag
+	 *
+	 * @return true if the tag has children, in which case the handler has been told they are starting
+	 */
+	private boolean replayHeader(final SdlHandler handler) {
+		if(comment != null && !comment.isEmpty())
+			handler.comment(comment);
+
+		handler.startTag(namespace, name);
+		for(int i = 0; i < valueCount; i++) {
+			handler.value(values[i]);
+		}
+		for(int i = 0; i < attributeCount; i++) {
+			handler.attribute(attributeNamespaces[i], attributeKeys[i], attributeValues[i]);
+		}
+
+		if(children != null && !children.isEmpty()) {
+			handler.startChildren();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Take a deeply immutable snapshot of this tag and all of its descendants. The snapshot
+	 * caches its hash code so is cheap to use as a map key or to compare. A snapshot is equal
+	 * to the tag it was taken from for as long as that tag is not changed.
+	 *
+	 * @return An immutable copy of this tag, or this tag if it is already immutable
+	 * @since 2.1.1
+	 */
+	public ImmutableTag freeze() {
+		return ImmutableTag.copyOf(this);
+	}
+
+	/**
+	 * Copy the comment, values and attributes (but not the children) of another tag
+	 */
+	void copyContentOf(final Tag source) {
+		comment = source.comment;
+		values = source.valueCount == 0 ? NO_VALUES : Arrays.copyOf(source.values, source.valueCount);
+		valueCount = source.valueCount;
+		if(source.attributeCount > 0) {
+			attributeKeys = Arrays.copyOf(source.attributeKeys, source.attributeCount);
+			attributeNamespaces = Arrays.copyOf(source.attributeNamespaces, source.attributeCount);
+			attributeValues = Arrays.copyOf(source.attributeValues, source.attributeCount);
+		}
+		attributeCount = source.attributeCount;
 	}
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        // an ImmutableTag is equal to a Tag with the same content
+        if (!(o instanceof Tag)) return false;
         final Tag tag = (Tag) o;
+        if (!contentEquals(tag)) return false;
+
+        // descendants are compared using an explicit stack rather than by recursion, so any depth of tree can be compared
+        final Deque<Walk> open = new ArrayDeque<>();
+        open.push(new Walk(this, tag));
+        while(!open.isEmpty()) {
+            final Walk walk = open.peek();
+            if(walk.next < walk.tag.getChildren().size()) {
+                final Tag child = walk.tag.children.get(walk.next);
+                final Tag other = walk.other.children.get(walk.next++);
+                if(child == other) {
+                    continue;
+                }
+                // immutable tags have their hash codes ready
+                if(child instanceof ImmutableTag && other instanceof ImmutableTag && child.hashCode() != other.hashCode()) {
+                    return false;
+                }
+                if(!child.contentEquals(other)) {
+                    return false;
+                }
+                open.push(new Walk(child, other));
+            } else {
+                open.pop();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare everything but the children of two tags, other than how many there are
+     */
+    private boolean contentEquals(final Tag tag) {
         return Objects.equals(namespace, tag.namespace) &&
             Objects.equals(name, tag.name) &&
-            Objects.equals(values, tag.values) &&
-            Objects.equals(valuesView, tag.valuesView) &&
-            Objects.equals(attributeToNamespace, tag.attributeToNamespace) &&
-            //Objects.equals(attributeToNamespaceView, tag.attributeToNamespaceView) &&
-            Objects.equals(attributes, tag.attributes) &&
-            //Objects.equals(attributesView, tag.attributesView) &&
-            Objects.equals(children, tag.children) &&
-            Objects.equals(childrenView, tag.childrenView);
+            valueCount == tag.valueCount &&
+            attributeCount == tag.attributeCount &&
+            rangeEquals(values, tag.values, valueCount) &&
+            rangeEquals(attributeKeys, tag.attributeKeys, attributeCount) &&
+            rangeEquals(attributeNamespaces, tag.attributeNamespaces, attributeCount) &&
+            rangeEquals(attributeValues, tag.attributeValues, attributeCount) &&
+            getChildren().size() == tag.getChildren().size();
     }
 
+    /**
+     * The same as combining the hash of everything but the children with {@code getChildren().hashCode()},
+     * worked out using an explicit stack so that any depth of tree can be hashed
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(namespace, name, values, valuesView, attributeToNamespace, attributes, children, childrenView);
+        final Deque<Walk> open = new ArrayDeque<>();
+        open.push(new Walk(this, null));
+        while(true) {
+            final Walk walk = open.peek();
+            if(walk.next < walk.tag.getChildren().size()) {
+                final Tag child = walk.tag.children.get(walk.next++);
+                if(child instanceof ImmutableTag) {
+                    // its hash code is cached
+                    walk.hash = 31 * walk.hash + child.hashCode();
+                } else {
+                    open.push(new Walk(child, null));
+                }
+            } else {
+                open.pop();
+                final int hash = 31 * walk.tag.contentHashCode() + walk.hash;
+                if(open.isEmpty()) {
+                    return hash;
+                }
+                final Walk parent = open.peek();
+                parent.hash = 31 * parent.hash + hash;
+            }
+        }
+    }
+
+    private int contentHashCode() {
+        int result = Objects.hash(namespace, name);
+        for(int i = 0; i < valueCount; i++) {
+            result = 31 * result + Objects.hashCode(values[i]);
+        }
+        for(int i = 0; i < attributeCount; i++) {
+            result = 31 * result + (attributeKeys[i].hashCode() ^ attributeNamespaces[i].hashCode() ^ Objects.hashCode(attributeValues[i]));
+        }
+        return result;
+    }
+
+    /**
+     * A tag whose children are being compared or hashed, along with the tag it is compared to
+     * or the hash of the children seen so far (which starts as the hash of an empty list)
+     */
+    private static final class Walk {
+        private final Tag tag;
+        private final Tag other;
+        private int next;
+        private int hash = 1;
+
+        private Walk(final Tag tag, final Tag other) {
+            this.tag = tag;
+            this.other = other;
+        }
+    }
+
+    private static boolean rangeEquals(final Object[] a, final Object[] b, final int length) {
+        for(int i = 0; i < length; i++) {
+            if(!Objects.equals(a[i], b[i])) {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
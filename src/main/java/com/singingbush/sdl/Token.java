@@ -11,11 +11,6 @@ import java.util.Objects;
  */
 class Token {
 
-    private static final String DATE_REGEX = "(\\d+\\/\\d+\\/\\d+)";
-    private static final String TIME_REGEX = "(\\d+:\\d+(:\\d+)?(.\\d+)?)(-\\w+)?";
-    private static final String DATETIME_REGEX = DATE_REGEX + " " + TIME_REGEX;
-    private static final String TIMESPAN_REGEX = "-?(\\d+d:)?(\\d+:\\d+:\\d+)(.\\d+)?";
-
     private SdlType type;
     private final String text;
     private final int line;
@@ -35,49 +30,44 @@ class Token {
         size=text.length();
 
         try {
-            if(text.startsWith("\"")) {
-                type = SdlType.STRING;
-                sdlValue = new SdlValue<>(Parser.parseString(text), SdlType.STRING);
-            } else if(text.startsWith("`")) {
-                type = SdlType.STRING_MULTILINE;
-                sdlValue = new SdlValue<>(Parser.parseMultilineString(text), SdlType.STRING_MULTILINE);
-            } else if(text.startsWith("'")) {
-                type = SdlType.CHARACTER;
-                sdlValue = new SdlValue<>(text.charAt(1), SdlType.CHARACTER);
-            } else if(text.equals("null")) {
-                type = SdlType.NULL;
-                sdlValue = new SdlValue<>(null, SdlType.NULL);
-            } else if(text.equals("true") || text.equals("on")) {
-                type = SdlType.BOOLEAN;
-                sdlValue = new SdlValue<>(true, SdlType.BOOLEAN);
-            } else if(text.equals("false") || text.equals("off")) {
-                type = SdlType.BOOLEAN;
-                sdlValue = new SdlValue<>(false, SdlType.BOOLEAN);
-            } else if(text.startsWith("[")) {
-                type = SdlType.BINARY;
-                sdlValue = new SdlValue<>(Parser.parseBinary(text), SdlType.BINARY);
-            } else if(text.matches(DATE_REGEX)) {
-                type = SdlType.DATE;
-                sdlValue = new SdlValue<>(Parser.parseDate(text), SdlType.DATE);
-            } else if(text.matches(DATETIME_REGEX)) {
-                type = SdlType.DATETIME;
-                final Object dt = text.contains("-") ? Parser.parseZonedDateTime(text) : Parser.parseLocalDateTime(text);
-                sdlValue = new SdlValue<>(dt, SdlType.DATETIME);
-            } else if(text.matches(TIMESPAN_REGEX)) {
-                type = SdlType.DURATION;
-                sdlValue = new SdlValue<>(Parser.parseTimeSpan(text), SdlType.DURATION);
-            } else if("01234567890-.".indexOf(text.charAt(0))!=-1) {
-                type = SdlType.NUMBER;
-                sdlValue = new SdlValue<>(Parser.parseNumber(text), SdlType.NUMBER);
-            } else {
-                char c = text.charAt(0);
-                switch(c) {
-                    case '{': type = SdlType.START_BLOCK; break;
-                    case '}': type = SdlType.END_BLOCK; break;
-                    case '=': type = SdlType.EQUALS; break;
-                    case ':': type = SdlType.COLON; break;
-                    case ';': type = SdlType.SEMICOLON; break;
-                }
+            final char c = text.charAt(0);
+            switch(c) {
+                case '"':
+                    type = SdlType.STRING;
+                    sdlValue = ValueCache.string(Parser.parseString(text));
+                    break;
+                case '`':
+                    type = SdlType.STRING_MULTILINE;
+                    sdlValue = new SdlValue<>(Parser.parseMultilineString(text), SdlType.STRING_MULTILINE);
+                    break;
+                case '\'':
+                    type = SdlType.CHARACTER;
+                    sdlValue = ValueCache.character(text.charAt(1));
+                    break;
+                case '[':
+                    type = SdlType.BINARY;
+                    sdlValue = new SdlValue<>(Parser.parseBinary(text), SdlType.BINARY);
+                    break;
+                case '{': type = SdlType.START_BLOCK; break;
+                case '}': type = SdlType.END_BLOCK; break;
+                case '=': type = SdlType.EQUALS; break;
+                case ':': type = SdlType.COLON; break;
+                case ';': type = SdlType.SEMICOLON; break;
+                default:
+                    if(CharClass.isNumberStart(c)) {
+                        // numbers, dates, date times and time spans are told apart while being parsed
+                        sdlValue = Parser.parseNumberDateOrTimeSpan(text);
+                        type = sdlValue.getType();
+                    } else if(text.equals("null")) {
+                        type = SdlType.NULL;
+                        sdlValue = ValueCache.NULL;
+                    } else if(text.equals("true") || text.equals("on")) {
+                        type = SdlType.BOOLEAN;
+                        sdlValue = ValueCache.TRUE;
+                    } else if(text.equals("false") || text.equals("off")) {
+                        type = SdlType.BOOLEAN;
+                        sdlValue = ValueCache.FALSE;
+                    }
             }
         } catch(final IllegalArgumentException iae) {
             throw new SDLParseException(iae.getMessage(), line, position);
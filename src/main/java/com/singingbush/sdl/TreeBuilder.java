@@ -0,0 +1,78 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The {@link SdlHandler} used by {@link Parser#parse()} to build a tree of {@link Tag} objects.
+ *
+ * @since 2.1.1
+ */
+final class TreeBuilder implements SdlHandler {
+
+    private final Deque<Tag> open = new ArrayDeque<>();
+    private final List<Tag> tags = new ArrayList<>();
+    private final boolean keepComments;
+
+    private String comment;
+
+    TreeBuilder() {
+        this(false);
+    }
+
+    /**
+     * @param keepComments if true comments are set on the tag that follows them
+     */
+    TreeBuilder(final boolean keepComments) {
+        this.keepComments = keepComments;
+    }
+
+    @Override
+    public void startTag(@NotNull final String namespace, @NotNull final String name) {
+        final Tag tag = new Tag(namespace, name);
+        if(comment != null) {
+            tag.setComment(comment);
+            comment = null;
+        }
+        open.push(tag);
+    }
+
+    @Override
+    public void value(@NotNull final SdlValue value) {
+        open.element().addValue(value);
+    }
+
+    @Override
+    public void attribute(@NotNull final String namespace, @NotNull final String key, @NotNull final SdlValue value) {
+        open.element().setAttribute(namespace, key, value);
+    }
+
+    @Override
+    public void endTag() {
+        final Tag tag = open.pop();
+        final Tag parent = open.peek();
+        if(parent != null) {
+            parent.addChild(tag);
+        } else {
+            tags.add(tag);
+        }
+    }
+
+    @Override
+    public void comment(@NotNull final String text) {
+        if(keepComments) {
+            comment = comment == null ? text : comment + "\n" + text;
+        }
+    }
+
+    /**
+     * @return the top level tags that have been completed so far
+     */
+    List<Tag> getTags() {
+        return tags;
+    }
+}
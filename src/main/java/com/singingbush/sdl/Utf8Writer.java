@@ -0,0 +1,261 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>Encodes text as UTF-8 straight into a byte buffer that is reused for the life of the writer,
+ * writing the bytes to an {@link OutputStream} or {@link WritableByteChannel} whenever the buffer
+ * fills or is flushed. Unlike an {@link java.io.OutputStreamWriter} the stream is never closed,
+ * so any number of tags can be appended to the same log file:</p>
+ *
+ * <pre>
+ * try(FileOutputStream log = new FileOutputStream("events.sdl", true)) {
+ *     final Utf8Writer writer = new Utf8Writer(log);
+ *     for(Tag event : events) {
+ *         event.writeTo(writer, options);
+ *         writer.write(options.getLineSeparator());
+ *     }
+ *     writer.flush();
+ * }
+ * </pre>
+ *
+ * <p>Malformed surrogate pairs are written as '?', as they would be by an OutputStreamWriter.
+ * A Utf8Writer is not thread safe.</p>
+ *
+ * @since 2.1.1
+ */
+public final class Utf8Writer extends Writer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer wrapped;
+
+    private int position;
+    // the first half of a surrogate pair that was the last char written
+    private char highSurrogate;
+    private boolean closed;
+
+    /**
+     * @param out where the bytes are written, it is flushed but never closed by this writer
+     */
+    public Utf8Writer(@NotNull final OutputStream out) {
+        this(out, null, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param out where the bytes are written, it is flushed but never closed by this writer
+     * @param bufferSize the number of bytes held before they are written to the stream
+     * @throws IllegalArgumentException if the buffer size is less than 4
+     */
+    public Utf8Writer(@NotNull final OutputStream out, final int bufferSize) {
+        this(out, null, bufferSize);
+    }
+
+    /**
+     * @param out where the bytes are written, it is never closed by this writer
+     */
+    public Utf8Writer(@NotNull final WritableByteChannel out) {
+        this(null, out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param out where the bytes are written, it is never closed by this writer
+     * @param bufferSize the number of bytes held before they are written to the channel
+     * @throws IllegalArgumentException if the buffer size is less than 4
+     */
+    public Utf8Writer(@NotNull final WritableByteChannel out, final int bufferSize) {
+        this(null, out, bufferSize);
+    }
+
+    private Utf8Writer(final OutputStream stream, final WritableByteChannel channel, final int bufferSize) {
+        if(bufferSize < 4) {
+            // room is needed for the longest encoding of a code point
+            throw new IllegalArgumentException("The buffer must hold at least 4 bytes");
+        }
+        this.stream = stream;
+        this.channel = channel;
+        this.buffer = new byte[bufferSize];
+        this.wrapped = channel != null ? ByteBuffer.wrap(buffer) : null;
+    }
+
+    @Override
+    public void write(final int c) throws IOException {
+        ensureOpen();
+        encode((char) c);
+    }
+
+    @Override
+    public void write(@NotNull final char[] chars, final int offset, final int length) throws IOException {
+        ensureOpen();
+        final int end = offset + length;
+        for(int i = offset; i < end; i++) {
+            encode(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(@NotNull final String s, final int offset, final int length) throws IOException {
+        ensureOpen();
+        final int end = offset + length;
+        int i = offset;
+        while(i < end) {
+            // ASCII is copied a buffer at a time without the checks needed for other chars
+            if(highSurrogate == 0) {
+                final int run = Math.min(end - i, buffer.length - position);
+                int copied = 0;
+                for(char c; copied < run && (c = s.charAt(i + copied)) < 0x80; copied++) {
+                    buffer[position + copied] = (byte) c;
+                }
+                position += copied;
+                i += copied;
+                if(i == end) {
+                    break;
+                }
+            }
+            encode(s.charAt(i++));
+        }
+    }
+
+    @Override
+    public Writer append(final CharSequence csq) throws IOException {
+        if(csq instanceof String) {
+            write((String) csq, 0, csq.length());
+            return this;
+        }
+        return csq == null ? append("null") : append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Writer append(final CharSequence csq, final int start, final int end) throws IOException {
+        if(csq == null) {
+            return append("null", start, end);
+        }
+        if(csq instanceof String) {
+            write((String) csq, start, end - start);
+            return this;
+        }
+        ensureOpen();
+        for(int i = start; i < end; i++) {
+            encode(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Writer append(final char c) throws IOException {
+        write(c);
+        return this;
+    }
+
+    /**
+     * Write out the buffered bytes and flush the stream. The first half of a surrogate pair is
+     * held back until the second half is written.
+     *
+     * @throws IOException If there is an IO problem writing the bytes
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+        if(stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * Write out anything buffered and stop accepting text. The stream or channel is left open.
+     *
+     * @throws IOException If there is an IO problem writing the bytes
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        if(highSurrogate != 0) {
+            highSurrogate = 0;
+            put('?');
+        }
+        flush();
+        closed = true;
+    }
+
+    private void encode(final char c) throws IOException {
+        if(buffer.length - position < 4) {
+            drain();
+        }
+
+        if(highSurrogate != 0) {
+            final char high = highSurrogate;
+            highSurrogate = 0;
+            if(Character.isLowSurrogate(c)) {
+                final int codePoint = Character.toCodePoint(high, c);
+                buffer[position++] = (byte) (0xf0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3f);
+                return;
+            }
+            put('?');
+            if(buffer.length - position < 4) {
+                drain();
+            }
+        }
+
+        if(c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if(c < 0x800) {
+            buffer[position++] = (byte) (0xc0 | c >> 6);
+            buffer[position++] = (byte) (0x80 | c & 0x3f);
+        } else if(Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if(Character.isLowSurrogate(c)) {
+            put('?');
+        } else {
+            buffer[position++] = (byte) (0xe0 | c >> 12);
+            buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+            buffer[position++] = (byte) (0x80 | c & 0x3f);
+        }
+    }
+
+    private void put(final char ascii) throws IOException {
+        if(position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) ascii;
+    }
+
+    private void drain() throws IOException {
+        if(position == 0) {
+            return;
+        }
+        if(stream != null) {
+            stream.write(buffer, 0, position);
+        } else {
+            // called through Buffer so the class still runs on Java 8
+            final Buffer bytes = wrapped;
+            bytes.clear();
+            bytes.limit(position);
+            while(wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        }
+        position = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if(closed) {
+            throw new IOException("Writer closed");
+        }
+    }
+}
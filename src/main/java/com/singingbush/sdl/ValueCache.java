@@ -0,0 +1,106 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>Shared instances of the values that turn up over and over in SDL documents. As
+ * {@link SdlValue} is immutable the same instance can be held by any number of tags, so the
+ * parser and the {@link SDL} factory methods use these rather than allocating a new value
+ * for every <code>true</code>, <code>null</code>, small number or short string.</p>
+ *
+ * <p>Ints from -128 to 1023 are cached. The upper bound can be changed with the
+ * <code>com.singingbush.sdl.cache.high</code> system property, which is read once when the
+ * class is loaded. Strings of up to {@value #MAX_STRING_LENGTH} characters go through a small
+ * fixed size table so that repeated strings share one value while the memory used stays
+ * bounded.</p>
+ *
+ * @since 2.1.1
+ */
+@SuppressWarnings("unchecked")
+final class ValueCache {
+
+    static final SdlValue NULL = new SdlValue<>(null, SdlType.NULL);
+    static final SdlValue<Boolean> TRUE = new SdlValue<>(Boolean.TRUE, SdlType.BOOLEAN);
+    static final SdlValue<Boolean> FALSE = new SdlValue<>(Boolean.FALSE, SdlType.BOOLEAN);
+    static final SdlValue<String> EMPTY_STRING = new SdlValue<>("", SdlType.STRING);
+
+    static final int MAX_STRING_LENGTH = 32;
+
+    private static final int LOW = -128;
+    private static final int HIGH = Math.min(Math.max(Integer.getInteger("com.singingbush.sdl.cache.high", 1023), 127), 1 << 20);
+
+    private static final SdlValue<Integer>[] INTS = new SdlValue[HIGH - LOW + 1];
+    private static final SdlValue<Character>[] CHARACTERS = new SdlValue[128];
+
+    // a direct mapped table, a string that collides with another simply replaces it. Values
+    // only have final fields so they can be shared between threads without locking.
+    private static final int STRING_TABLE_SIZE = 4096;
+    private static final SdlValue<String>[] STRINGS = new SdlValue[STRING_TABLE_SIZE];
+
+    static {
+        for(int i = 0; i < INTS.length; i++) {
+            INTS[i] = new SdlValue.IntValue(i + LOW);
+        }
+        for(char c = 0; c < CHARACTERS.length; c++) {
+            CHARACTERS[c] = new SdlValue<>(c, SdlType.CHARACTER);
+        }
+    }
+
+    private ValueCache() {
+    }
+
+    /**
+     * @param value a boolean
+     * @return the shared value for true or false
+     */
+    @NotNull
+    static SdlValue<Boolean> bool(final boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * @param value an int
+     * @return a shared value if the int is in the cached range, otherwise a new one
+     */
+    @NotNull
+    static SdlValue<Integer> integer(final int value) {
+        if(value >= LOW && value <= HIGH) {
+            return INTS[value - LOW];
+        }
+        return new SdlValue.IntValue(value);
+    }
+
+    /**
+     * @param value a character
+     * @return a shared value for ASCII characters, otherwise a new one
+     */
+    @NotNull
+    static SdlValue<Character> character(final char value) {
+        return value < CHARACTERS.length ? CHARACTERS[value] : new SdlValue<>(value, SdlType.CHARACTER);
+    }
+
+    /**
+     * @param value the text of a double quoted string
+     * @return a shared value if the same short string has been seen recently, otherwise a new one
+     */
+    @NotNull
+    static SdlValue<String> string(@NotNull final String value) {
+        final int length = value.length();
+        if(length == 0) {
+            return EMPTY_STRING;
+        }
+        if(length > MAX_STRING_LENGTH) {
+            return new SdlValue<>(value, SdlType.STRING);
+        }
+
+        final int h = value.hashCode();
+        final int i = (h ^ (h >>> 16)) & (STRING_TABLE_SIZE - 1);
+        final SdlValue<String> cached = STRINGS[i];
+        if(cached != null && value.equals(cached.getValue())) {
+            return cached;
+        }
+        final SdlValue<String> created = new SdlValue<>(value, SdlType.STRING);
+        STRINGS[i] = created;
+        return created;
+    }
+}
@@ -0,0 +1,98 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * <p>How SDL is laid out by {@link Tag#writeTo(Appendable, WriteOptions)} and {@link SdlWriter}.
+ * Options are immutable, each {@code with} method returns a new copy.</p>
+ *
+ * <pre>
+ * tag.writeTo(writer, WriteOptions.defaults().withIndent("\t").withLineSeparator("\n"));
+ * </pre>
+ *
+ * @since 2.1.1
+ */
+public final class WriteOptions {
+
+    private static final WriteOptions DEFAULTS = new WriteOptions("    ", System.getProperty("line.separator"));
+
+    // indents for the first few levels, deeper levels are written a chunk at a time
+    private static final int CACHED_LEVELS = 32;
+
+    private final String indent;
+    private final String lineSeparator;
+    private final String[] indents = new String[CACHED_LEVELS];
+
+    private WriteOptions(@NotNull final String indent, @NotNull final String lineSeparator) {
+        this.indent = indent;
+        this.lineSeparator = lineSeparator;
+
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < CACHED_LEVELS; i++) {
+            indents[i] = sb.toString();
+            sb.append(indent);
+        }
+    }
+
+    /**
+     * @return options that indent by four spaces and end lines with the system line separator,
+     *     the same as {@link Tag#toString()}
+     */
+    @NotNull
+    public static WriteOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param indent written once for each level of nesting, must only contain spaces and tabs
+     * @return a copy of these options with the indent
+     * @throws IllegalArgumentException if the indent contains anything but spaces and tabs
+     */
+    @NotNull
+    public WriteOptions withIndent(@NotNull final String indent) {
+        for(int i = 0; i < indent.length(); i++) {
+            final char c = indent.charAt(i);
+            if(c != ' ' && c != '\t') {
+                throw new IllegalArgumentException("An indent can only contain spaces and tabs");
+            }
+        }
+        return new WriteOptions(indent, lineSeparator);
+    }
+
+    /**
+     * @param lineSeparator "\n", "\r\n" or "\r"
+     * @return a copy of these options with the line separator
+     * @throws IllegalArgumentException if the line separator is not one of those supported
+     */
+    @NotNull
+    public WriteOptions withLineSeparator(@NotNull final String lineSeparator) {
+        if(!"\n".equals(lineSeparator) && !"\r\n".equals(lineSeparator) && !"\r".equals(lineSeparator)) {
+            throw new IllegalArgumentException("The line separator must be \\n, \\r\\n or \\r");
+        }
+        return new WriteOptions(indent, lineSeparator);
+    }
+
+    @NotNull
+    public String getIndent() {
+        return indent;
+    }
+
+    @NotNull
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    /**
+     * Write the indent for a level of nesting
+     */
+    void writeIndent(@NotNull final Appendable out, final int level) throws IOException {
+        final int max = CACHED_LEVELS - 1;
+        int remaining = level;
+        for(; remaining > max; remaining -= max) {
+            out.append(indents[max]);
+        }
+        out.append(indents[remaining]);
+    }
+}
@@ -0,0 +1,60 @@
+package com.singingbush.sdl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+/**
+ * Resolves the zone at the end of a date time literal such as <code>2005/12/05 14:12:23.345-JST</code>.
+ * Zones are resolved with {@link TimeZone#getTimeZone(String)}, so short ids like "JST" and
+ * "PST" work and an unknown id means GMT, which is slow enough to be worth caching as the
+ * same few zones tend to appear on every date time in a document. The cache is a small
+ * direct mapped table matched against the literal's characters, so a hit allocates nothing.
+ *
+ * @since 2.1.1
+ */
+final class ZoneCache {
+
+    private static final int SIZE = 64;
+    private static final Entry[] ENTRIES = new Entry[SIZE];
+
+    private ZoneCache() {
+    }
+
+    /**
+     * @param text holds the zone id
+     * @param start index of the first character of the zone id
+     * @param end index after the last character of the zone id
+     * @return the zone
+     */
+    @NotNull
+    static ZoneId resolve(@NotNull final String text, final int start, final int end) {
+        int h = 0;
+        for(int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+
+        final int i = (h ^ (h >>> 16)) & (SIZE - 1);
+        final Entry entry = ENTRIES[i];
+        if(entry != null && entry.id.length() == end - start && entry.id.regionMatches(0, text, start, end - start)) {
+            return entry.zone;
+        }
+
+        final String id = text.substring(start, end);
+        final ZoneId zone = TimeZone.getTimeZone(id).toZoneId();
+        // entries are immutable so can be replaced without locking
+        ENTRIES[i] = new Entry(id, zone);
+        return zone;
+    }
+
+    private static final class Entry {
+        private final String id;
+        private final ZoneId zone;
+
+        private Entry(final String id, final ZoneId zone) {
+            this.id = id;
+            this.zone = zone;
+        }
+    }
+}
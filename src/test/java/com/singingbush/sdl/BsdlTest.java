@@ -0,0 +1,153 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BsdlTest {
+
+    private static final String SDL_TEXT = "servers region=\"eu\" {\n" +
+        "    ns:server \"alpha\" `raw\\text` 'x' port=8080 ns:secure=true {\n" +
+        "        limits 10 -42L 1.5F 2.25 3.14159BD -0.001BD null false\n" +
+        "        started 2005/12/31 2005/12/31 12:30:00.123 2015/01/01 09:00:00.000-JST 2015/07/01 09:00:00.000-GMT+05:30\n" +
+        "        uptime 12:14:34 2d:12:10:22.500\n" +
+        "        key [sdf789GSfsb2+3324sf2]\n" +
+        "        \"anonymous\" \"größe 日本語 \\\"quoted\\\"\"\n" +
+        "    }\n" +
+        "    ns:server \"beta\" port=8081\n" +
+        "}\n" +
+        "empty\n";
+
+    @Test
+    public void testRoundTrip() throws SDLParseException, IOException {
+        final List<Tag> tags = new Parser(SDL_TEXT).parse();
+        tags.get(0).getChildren().get(1).setComment("second\nserver");
+
+        final byte[] data = Bsdl.encode(tags);
+        final List<Tag> decoded = Bsdl.decode(data);
+
+        assertEquals(tags, decoded);
+        assertEquals(tags.get(0).toString(), decoded.get(0).toString());
+        assertEquals("second\nserver", decoded.get(0).getChildren().get(1).getComment());
+        assertTrue(data.length < SDL_TEXT.getBytes(UTF_8).length);
+
+        // the decoded tags are equal to the text form parsed again
+        final StringBuilder text = new StringBuilder();
+        for(final Tag tag : decoded) {
+            text.append(tag).append('\n');
+        }
+        assertEquals(tags, new Parser(text.toString()).parse());
+    }
+
+    @Test
+    public void testValuesAreLossless() {
+        final Tag tag = SDL.tag("numbers")
+            .withValue(SDL.value(Long.MIN_VALUE))
+            .withValue(SDL.value(Integer.MAX_VALUE))
+            .withValue(SDL.value(Float.NaN))
+            .withValue(SDL.value(-0.0d))
+            .withValue(new SdlValue<>(new BigDecimal("-123456789012345678901234567890.000"), SdlType.NUMBER))
+            .withValue(SDL.value(new byte[0]))
+            .withValue(SDL.value('\u00e9'))
+            .withValue(SDL.value(Duration.ofSeconds(-5)))
+            .build();
+
+        final Tag decoded = Bsdl.decode(Bsdl.encode(Arrays.asList(tag))).get(0);
+        assertEquals(tag, decoded);
+        assertEquals(tag.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testStreamAndHandler() throws IOException, SDLParseException {
+        final List<Tag> tags = new Parser(SDL_TEXT).parse();
+        tags.get(0).setComment("the servers");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Bsdl.encode(tags, out);
+        assertArrayEquals(Bsdl.encode(tags), out.toByteArray());
+
+        final List<String> events = new ArrayList<>();
+        Bsdl.decode(out.toByteArray(), new SdlHandler() {
+            @Override
+            public void startTag(final String namespace, final String name) {
+                events.add(namespace.isEmpty() ? name : namespace + ":" + name);
+            }
+
+            @Override
+            public void value(final SdlValue value) {
+            }
+
+            @Override
+            public void attribute(final String namespace, final String key, final SdlValue value) {
+            }
+
+            @Override
+            public void endTag() {
+                events.add("end");
+            }
+
+            @Override
+            public void comment(final String text) {
+                events.add("// " + text);
+            }
+        });
+        assertEquals(Arrays.asList("// the servers", "servers", "ns:server", "limits", "end", "started", "end",
+            "uptime", "end", "key", "end", "content", "end", "end", "ns:server", "end", "end", "empty", "end"), events);
+    }
+
+    @Test
+    public void testMalformedData() throws SDLParseException, IOException {
+        final byte[] data = Bsdl.encode(new Parser(SDL_TEXT).parse());
+
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode("SDL".getBytes(UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(new byte[] {'B', 'S', 'D', 'L', 9}));
+        // a truncation is reported as bad data unless it falls between top level tags
+        int complete = 0;
+        for(int length = 5; length < data.length; length++) {
+            try {
+                final List<Tag> tags = Bsdl.decode(Arrays.copyOf(data, length));
+                assertTrue(tags.size() < 2);
+                complete++;
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertEquals(2, complete);
+
+        // lengths and string indexes that overflow to negative numbers
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 1)));
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 1)));
+        // an unknown value op code
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0, 0, 0, 1, 'a', 0x7f, 4)));
+        // values that are out of range: an epoch day, a time of day, a zone offset, a duration and a decimal with no digits
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0, 0, 0, 1, 'a', 0x58, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 1, 4)));
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0, 0, 0, 1, 'a', 0x60, 0, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0x7f, 4)));
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0, 0, 0, 1, 'a', 0x61, 0, 0, 0xff, 0xff, 0xff, 0xff, 0x0f, 0, 1, 'Z', 4)));
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0, 0, 0, 1, 'a', 0x68, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 1, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 1, 4)));
+        assertThrows(IllegalArgumentException.class, () -> Bsdl.decode(bsdl(1, 0, 0, 0, 1, 'a', 0x54, 0, 0, 4)));
+    }
+
+    /**
+     * @return the BSDL header followed by the bytes
+     */
+    private static byte[] bsdl(final int... bytes) {
+        final byte[] data = new byte[bytes.length + 5];
+        System.arraycopy("BSDL".getBytes(UTF_8), 0, data, 0, 4);
+        data[4] = 1;
+        for(int i = 0; i < bytes.length; i++) {
+            data[i + 5] = (byte) bytes[i];
+        }
+        return data;
+    }
+}
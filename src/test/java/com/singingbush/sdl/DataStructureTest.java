@@ -4,12 +4,20 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.time.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Samael Bate (singingbush)
@@ -240,6 +248,127 @@ public class DataStructureTest {
             root.getChild("daughter", true).getAttributesForNamespace("public"));
     }
 
+    @Test
+    public void testAttributeStorage() {
+        final Tag t = new Tag("atts");
+        t.setAttribute("zeta", new SdlValue<>(1, SdlType.NUMBER));
+        t.setAttribute("ns", "alpha", new SdlValue<>(2, SdlType.NUMBER));
+        t.setAttribute("mid", new SdlValue<>(3, SdlType.NUMBER));
+        t.setAttribute("beta", new SdlValue<>(4, SdlType.NUMBER));
+        t.setAttribute("mid", new SdlValue<>(5, SdlType.NUMBER));
+
+        assertEquals(Arrays.asList("alpha", "beta", "mid", "zeta"), new ArrayList<>(t.getAttributes().keySet()));
+        assertEquals(5, t.getAttribute("mid"));
+        assertEquals("ns", t.getAttributeNamespaces().get("alpha"));
+        assertEquals("", t.getAttributeNamespaces().get("mid"));
+        assertEquals(map("alpha", 2), t.getAttributesForNamespace("ns"));
+        assertEquals("atts ns:alpha=2 beta=4 mid=5 zeta=1", t.toString());
+
+        // the maps are read-only views that follow later changes
+        final SortedMap<String, SdlValue> attributes = t.getAttributes();
+        final Map<String, String> namespaces = t.getAttributeNamespaces();
+        assertSame(attributes, t.getAttributes());
+        assertThrows(UnsupportedOperationException.class, () -> attributes.put("new", SDL.value(1)));
+        assertThrows(UnsupportedOperationException.class, attributes::clear);
+
+        assertEquals(new SdlValue<>(4, SdlType.NUMBER), t.removeAttribute("beta"));
+        assertNull(t.removeAttribute("beta"));
+        assertNull(t.getAttribute("beta"));
+        assertEquals(3, attributes.size());
+        assertEquals("alpha", attributes.firstKey());
+        assertEquals("zeta", attributes.lastKey());
+        assertFalse(attributes.containsKey("beta"));
+        assertEquals(map("mid", new SdlValue<>(5, SdlType.NUMBER)), attributes.subMap("b", "n"));
+        assertEquals(map("alpha", "ns", "mid", "", "zeta", ""), namespaces);
+
+        final Tag same = new Tag("atts");
+        same.setAttribute("mid", new SdlValue<>(5, SdlType.NUMBER));
+        same.setAttribute("zeta", new SdlValue<>(1, SdlType.NUMBER));
+        same.setAttribute("ns", "alpha", new SdlValue<>(2, SdlType.NUMBER));
+        assertEquals(same, t);
+        assertEquals(same.hashCode(), t.hashCode());
+    }
+
+    @Test
+    public void testValueStorage() {
+        final Tag t = new Tag("values");
+        assertNull(t.getValue());
+        assertTrue(t.getChildren().isEmpty());
+
+        for(int i = 0; i < 5; i++) {
+            t.addValue(new SdlValue<>(i, SdlType.NUMBER));
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), t.getValues());
+
+        assertTrue(t.removeValue(new SdlValue<>(2, SdlType.NUMBER)));
+        assertFalse(t.removeValue(new SdlValue<>(2, SdlType.NUMBER)));
+        t.setValue(new SdlValue<>(9, SdlType.NUMBER));
+        assertEquals(Arrays.asList(9, 1, 3, 4), t.getValues());
+        assertNull(t.getValue(4));
+    }
+
+    @Test
+    public void testChildIndex() {
+        final Tag routes = new Tag("routes");
+        for(int i = 0; i < 100; i++) {
+            routes.addChild(new Tag(i % 2 == 0 ? "even" : "odd", "route" + (i % 10)));
+        }
+
+        assertEquals(10, routes.getChildren("route3").size());
+        assertEquals(50, routes.getChildrenForNamespace("odd").size());
+        assertEquals(routes.getChildren().get(3), routes.getChild("route3"));
+
+        // the index is kept up to date as children are added and removed
+        final Tag extra = new Tag("route3");
+        routes.addChild(extra);
+        assertEquals(11, routes.getChildren("route3").size());
+        assertSame(extra, routes.getChildren("route3").get(10));
+        assertEquals(1, routes.getChildrenForNamespace("").size());
+
+        assertTrue(routes.removeChild(routes.getChildren().get(3)));
+        assertEquals(10, routes.getChildren("route3").size());
+        assertSame(routes.getChildren().get(12), routes.getChild("route3"));
+
+        assertTrue(routes.removeChild(extra));
+        assertEquals(0, routes.getChildrenForNamespace("").size());
+        assertNull(routes.getChild("missing"));
+        assertTrue(routes.getChildren("missing").isEmpty());
+    }
+
+    @Test
+    public void testWriteTo() throws SDLParseException, IOException {
+        final Tag root = SDL.tag("root")
+            .withComment("top\nlevel")
+            .withChild(SDL.tag("a")
+                .withValue(SDL.value(1))
+                .withChild(SDL.tag("b").withAttribute("key", SDL.value("v", false)).build())
+                .build())
+            .withChild(SDL.tag("c").build())
+            .build();
+
+        final StringBuilder defaults = new StringBuilder();
+        root.writeTo(defaults, WriteOptions.defaults());
+        assertEquals(root.toString(), defaults.toString());
+
+        final StringBuilder tabs = new StringBuilder();
+        root.writeTo(tabs, WriteOptions.defaults().withIndent("\t").withLineSeparator("\n"));
+        assertEquals("// top\n// level\nroot {\n\ta 1 {\n\t\tb key=\"v\"\n\t}\n\tc\n}", tabs.toString());
+        assertEquals(root, new Parser(tabs.toString()).parse().get(0));
+
+        // deeper than the cached indents
+        Tag deep = SDL.tag("leaf").build();
+        for(int i = 0; i < 100; i++) {
+            deep = SDL.tag("level").withChild(deep).build();
+        }
+        final StringBuilder nested = new StringBuilder();
+        deep.writeTo(nested, WriteOptions.defaults().withLineSeparator("\n"));
+        assertTrue(nested.toString().contains("\n" + String.join("", Collections.nCopies(100, "    ")) + "leaf\n"));
+        assertEquals(deep, new Parser(nested.toString()).parse().get(0));
+
+        assertThrows(IllegalArgumentException.class, () -> WriteOptions.defaults().withIndent("--"));
+        assertThrows(IllegalArgumentException.class, () -> WriteOptions.defaults().withLineSeparator(";"));
+    }
+
     private static Map map(Object... obs) {
         TreeMap map = new TreeMap();
         for(int i = 0; i < obs.length;)
@@ -2,9 +2,17 @@ package com.singingbush.sdl;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,6 +61,67 @@ public class DataTypesTest {
         assertTrue(value.getValue().getClass().isAssignableFrom(Long.class));
     }
 
+    @Test
+    public void testPrimitiveNumberAccessors() throws SDLParseException {
+        final Tag tag = new Tag("root").read("numbers 7 8000000000L 2.5F 0.125 12.5BD").getChild("numbers");
+
+        assertEquals(7, tag.intValue());
+        assertEquals(7L, tag.longValue());
+        assertEquals(8000000000L, new Tag("root").read("big 8000000000L").getChild("big").longValue());
+
+        final SdlValue value = SDL.value(7);
+        assertEquals(7.0, value.doubleValue());
+        assertEquals(2.5, SDL.value(2.5F).doubleValue());
+        assertEquals(0.125, SDL.value("0.125").doubleValue());
+        assertEquals(12, SDL.value("12.5BD").intValue());
+
+        // primitive backed values are equal to boxed ones
+        assertEquals(new SdlValue<>(7, SdlType.NUMBER), value);
+        assertEquals(value, new SdlValue<>(7, SdlType.NUMBER));
+        assertEquals(new SdlValue<>(7, SdlType.NUMBER).hashCode(), value.hashCode());
+        assertNotEquals(SDL.value(7L), value);
+        assertEquals("8000000000L", SDL.value(8000000000L).getText());
+
+        assertThrows(ClassCastException.class, () -> SDL.value(true).intValue());
+    }
+
+    @Test
+    public void testCommonValuesAreShared() throws IOException, SDLParseException {
+        final List<SdlValue> values = new ArrayList<>();
+        new Parser("a true null 5 \"\" \"name\" 'x' 100000\nb on null 5 \"\" \"name\" 'x' 100000").parse(new SdlHandler() {
+            @Override
+            public void startTag(final String namespace, final String name) {}
+
+            @Override
+            public void value(final SdlValue value) {
+                values.add(value);
+            }
+
+            @Override
+            public void attribute(final String namespace, final String key, final SdlValue value) {}
+
+            @Override
+            public void endTag() {}
+        });
+
+        assertEquals(14, values.size());
+        for(int i = 0; i < 6; i++) {
+            assertSame(values.get(i), values.get(i + 7));
+        }
+        assertNotSame(values.get(6), values.get(13));
+        assertEquals(values.get(6), values.get(13));
+
+        assertSame(SDL.value(true), values.get(0));
+        assertSame(SDL.NULL, values.get(1));
+        assertSame(SDL.value(5), values.get(2));
+        assertSame(SDL.value("name", false), values.get(4));
+        assertSame(SDL.value('x'), values.get(5));
+        assertSame(SDL.value(-128), SDL.value("-128"));
+
+        // multiline strings have a different type so are never shared with quoted ones
+        assertNotSame(SDL.value("name", true), SDL.value("name", false));
+    }
+
     @Test // 10BD == 128-bit numbers (BigDecimal)
     public void test128bitBigDecimal() {
         final SdlValue value = SDL.value("10BD");
@@ -141,6 +210,48 @@ public class DataTypesTest {
         assertTrue(value.getValue().getClass().isAssignableFrom(byte[].class));
     }
 
+    @Test
+    public void testAppendToMatchesReferenceFormatting() throws IOException {
+        final DateTimeFormatter date = DateTimeFormatter.ofPattern("y/M/d");
+        final DateTimeFormatter localDateTime = DateTimeFormatter.ofPattern("y/M/d H:m:s.SSS");
+        final DateTimeFormatter zonedDateTime = DateTimeFormatter.ofPattern(SDL.DATE_TIME_FORMAT).withLocale(Locale.ENGLISH);
+
+        final Random random = new Random(42);
+        for(int i = 0; i < 1000; i++) {
+            final LocalDateTime when = LocalDateTime.of(1 + random.nextInt(9999), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1_000_000_000));
+            final ZonedDateTime zoned = when.atZone(ZoneId.of(random.nextBoolean() ? "America/Los_Angeles" : "Asia/Tokyo"));
+            assertAppended(date.format(when.toLocalDate()), SDL.value(when.toLocalDate()));
+            assertAppended(localDateTime.format(when), SDL.value(when));
+            assertAppended(zonedDateTime.format(zoned), SDL.value(zoned));
+
+            final byte[] bytes = new byte[random.nextInt(10)];
+            random.nextBytes(bytes);
+            assertAppended("[" + Base64.getEncoder().encodeToString(bytes) + "]", SDL.value(bytes));
+
+            final long number = random.nextLong();
+            assertAppended(Long.toString(number) + "L", SDL.value(number));
+            assertAppended(Integer.toString((int) number), SDL.value((int) number));
+        }
+
+        // years before 1 are written by the shared formatters
+        assertAppended(date.format(LocalDate.of(0, 1, 1)), SDL.value(LocalDate.of(0, 1, 1)));
+        assertAppended("-9223372036854775808L", SDL.value(Long.MIN_VALUE));
+        assertAppended("1.5F", SDL.value(1.5f));
+        assertAppended("2.25", SDL.value(2.25d));
+        assertAppended("\"tab\\there \\\\ \\\"\"", SDL.value("tab\there \\ \"", false));
+        assertAppended("'\\''", SDL.value('\''));
+        assertAppended("3d:04:05:06.007", SDL.value(Duration.ofDays(3).plusHours(4).plusMinutes(5).plusSeconds(6).plusMillis(7)));
+    }
+
+    private static void assertAppended(final String expected, final SdlValue<?> value) throws IOException {
+        assertEquals(expected, value.getText());
+        // appendables other than StringBuilder take the hand written path for numbers too
+        final StringWriter writer = new StringWriter();
+        value.appendTo(writer);
+        assertEquals(expected, writer.toString());
+    }
+
     private Boolean sdlBoolean(final String text) {
         final SdlValue value = SDL.value(text);
         assertNotNull(value);
@@ -7,6 +7,8 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -119,4 +121,37 @@ public class DateTimeTest {
         assertEquals("date_time8 985/4/11 12:30:23.123-PST",
             root.getChild("date_time8").toString());
     }
+
+    @Test
+    public void testDateTimeWithoutSeconds() throws SDLParseException {
+        final Tag root = new Tag("root").read("date_time9 2005/12/31 12:30-UTC");
+
+        assertEquals(
+            ZonedDateTime.of(2005, 12, 31, 12, 30, 0, 0, ZoneId.of("UTC")),
+            root.getChild("date_time9").getValue()
+        );
+    }
+
+    @Test
+    public void testZonesAreCached() throws SDLParseException {
+        final Tag root = new Tag("root").read("a 2005/12/31 12:30-JST 2005/12/31 12:30-PST 2005/12/31 12:30-JST 2005/12/31 12:30-Nowhere");
+        final ZonedDateTime first = (ZonedDateTime) root.getChild("a").getValue(0);
+        final ZonedDateTime second = (ZonedDateTime) root.getChild("a").getValue(1);
+        final ZonedDateTime third = (ZonedDateTime) root.getChild("a").getValue(2);
+
+        assertEquals(ZoneId.of("Asia/Tokyo"), first.getZone());
+        assertEquals(ZoneId.of("America/Los_Angeles"), second.getZone());
+        assertSame(first.getZone(), third.getZone());
+
+        // as with java.util.TimeZone an unknown zone is GMT
+        assertEquals(ZoneId.of("GMT"), ((ZonedDateTime) root.getChild("a").getValue(3)).getZone());
+    }
+
+    @Test
+    public void testInvalidDates() {
+        assertThrows(SDLParseException.class, () -> new Tag("root").read("date 2005/13/01"));
+        assertThrows(SDLParseException.class, () -> new Tag("root").read("date 2005/12"));
+        assertThrows(SDLParseException.class, () -> new Tag("root").read("date_time 2005/12/31 12:30:00.000-"));
+        assertThrows(SDLParseException.class, () -> new Tag("root").read("date_time -2005/12/31"));
+    }
 }
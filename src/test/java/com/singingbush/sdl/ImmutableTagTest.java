@@ -0,0 +1,161 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImmutableTagTest {
+
+    private static final String SDL = "config \"main\" version=2 {\n" +
+        "    server \"alpha\" port=8080 {\n" +
+        "        ns:option \"fast\"\n" +
+        "    }\n" +
+        "    server \"beta\" port=8081\n" +
+        "}";
+
+    @Test
+    public void testFreezeIsEqualToSource() throws SDLParseException {
+        final Tag tag = new Tag("root").read(SDL).getChild("config");
+        final ImmutableTag frozen = tag.freeze();
+
+        assertEquals(tag, frozen);
+        assertEquals(frozen, tag);
+        assertEquals(tag.hashCode(), frozen.hashCode());
+        assertEquals(tag.toString(), frozen.toString());
+        assertSame(frozen, frozen.freeze());
+
+        for(final Tag child : frozen.getChildren()) {
+            assertTrue(child instanceof ImmutableTag);
+        }
+        assertTrue(frozen.getChild("option", true) instanceof ImmutableTag);
+    }
+
+    @Test
+    public void testSnapshotIsIndependentOfSource() throws SDLParseException {
+        final Tag tag = new Tag("root").read(SDL).getChild("config");
+        final ImmutableTag frozen = tag.freeze();
+        final int hash = frozen.hashCode();
+
+        tag.getChildren().get(0).setAttribute("port", new SdlValue<>(9090, SdlType.NUMBER));
+        tag.addValue(new SdlValue<>("extra", SdlType.STRING));
+
+        assertEquals(hash, frozen.hashCode());
+        assertEquals(8080, frozen.getChildren().get(0).getAttribute("port"));
+        assertEquals(1, frozen.getValues().size());
+        assertNotEquals(tag, frozen);
+    }
+
+    @Test
+    public void testUsableAsMapKey() throws IOException, SDLParseException {
+        final Map<Tag, String> cache = new HashMap<>();
+        cache.put(new Parser(SDL).parse().get(0).freeze(), "cached");
+
+        assertEquals("cached", cache.get(new Parser(SDL).parse().get(0).freeze()));
+        assertEquals("cached", cache.get(new Parser(SDL).parse().get(0)));
+    }
+
+    @Test
+    public void testSeparateSnapshotsWithBinaryValuesAreEqual() throws IOException, SDLParseException {
+        final String sdl = "config {\n    key [AAEC] name=\"x\"\n}";
+        final ImmutableTag first = new Parser(sdl).parse().get(0).freeze();
+        final ImmutableTag second = new Parser(sdl).parse().get(0).freeze();
+
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first, second);
+
+        final Map<Tag, String> cache = new HashMap<>();
+        cache.put(first, "cached");
+        assertEquals("cached", cache.get(second));
+    }
+
+    @Test
+    public void testCannotBeModified() throws IOException, SDLParseException {
+        final ImmutableTag frozen = new Parser(SDL).parse().get(0).freeze();
+        final SdlValue value = new SdlValue<>(1, SdlType.NUMBER);
+
+        assertThrows(UnsupportedOperationException.class, () -> frozen.addValue(value));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setValue(value));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.removeValue(value));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setAttribute("key", value));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setAttribute("ns", "key", value));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.removeAttribute("version"));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.addChild(new Tag("child")));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.removeChild(frozen.getChildren().get(0)));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getChildren().clear());
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getChildren().get(0).addValue(value));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.read("child"));
+    }
+
+    @Test
+    public void testPersistentUpdates() throws IOException, SDLParseException {
+        final ImmutableTag v1 = new Parser(SDL).parse().get(0).freeze();
+        final ImmutableTag alpha = (ImmutableTag) v1.getChildren().get(0);
+        final ImmutableTag beta = (ImmutableTag) v1.getChildren().get(1);
+        final ImmutableTag option = (ImmutableTag) alpha.getChildren().get(0);
+
+        final ImmutableTag v2 = v1.replace(option, option.withValue(new SdlValue<>("safe", SdlType.STRING)));
+
+        // the old version is untouched
+        assertEquals(new Parser(SDL).parse().get(0), v1);
+        assertEquals(1, v1.getChild("option", true).getValues().size());
+
+        // only the path to the change has been copied
+        assertEquals(2, v2.getChild("option", true).getValues().size());
+        assertNotSame(v1, v2);
+        assertNotSame(alpha, v2.getChildren().get(0));
+        assertSame(beta, v2.getChildren().get(1));
+
+        final ImmutableTag v3 = v2.withAttribute("version", new SdlValue<>(3, SdlType.NUMBER))
+            .withChild(new Tag("server"));
+        assertEquals(3, v3.getAttribute("version"));
+        assertEquals(3, v3.getChildren().size());
+        assertSame(v2.getChildren().get(0), v3.getChildren().get(0));
+        assertEquals(2, v2.getAttribute("version"));
+
+        final ImmutableTag v4 = v3.withoutChild(2).withChild(0, new Tag("replaced"));
+        assertEquals("replaced", v4.getChildren().get(0).getName());
+        assertSame(beta, v4.getChildren().get(1));
+        assertTrue(v4.getChildren().get(0) instanceof ImmutableTag);
+
+        assertSame(v1, v1.replace(option.withValue(new SdlValue<>(1, SdlType.NUMBER)), new Tag("missing")));
+
+        // undoing the changes gives a tree equal to the original
+        final ImmutableTag undone = v4.withChild(0, alpha).withAttribute("version", new SdlValue<>(2, SdlType.NUMBER));
+        assertEquals(v1, undone);
+        assertEquals(v1.hashCode(), undone.hashCode());
+    }
+
+    @Test
+    public void testReplaceByPath() throws IOException, SDLParseException {
+        final ImmutableTag v1 = new Parser(SDL).parse().get(0).freeze();
+        final ImmutableTag beta = (ImmutableTag) v1.getChildren().get(1);
+        final ImmutableTag option = (ImmutableTag) v1.getChildren().get(0).getChildren().get(0);
+
+        final int[] path = v1.pathTo(option);
+        assertArrayEquals(new int[] {0, 0}, path);
+        assertArrayEquals(new int[0], v1.pathTo(v1));
+        assertNull(v1.pathTo(option.withValue(new SdlValue<>(1, SdlType.NUMBER))));
+
+        // the path can be reused for each new version
+        ImmutableTag version = v1;
+        for(int i = 0; i < 3; i++) {
+            version = version.replace(path, new Tag("option" + i));
+            assertEquals("option" + i, version.getChildren().get(0).getChildren().get(0).getName());
+            assertSame(beta, version.getChildren().get(1));
+        }
+        assertEquals(v1.replace(option, new Tag("option2")), version);
+        assertEquals("root", v1.replace(new int[0], new Tag("root")).getName());
+        assertThrows(IndexOutOfBoundsException.class, () -> v1.replace(new int[] {5}, new Tag("x")));
+    }
+}
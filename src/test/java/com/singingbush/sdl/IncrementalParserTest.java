@@ -0,0 +1,125 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IncrementalParserTest {
+
+    private static final String TRICKY = "# a comment { with a brace\n" +
+        "text `multi {\nline` \"esc\\\"aped {\" /* block {\n" +
+        "comment */ key=[sdf789GSfsb2+3324sf2]\n" +
+        "parent {\n" +
+        "    child 'x' '{' -- comment }\n" +
+        "    \"日本語\" \\\n" +
+        "        continued=true\n" +
+        "}\n" +
+        "date 2015/12/06 12:00:00.000-UTC // trailing\n" +
+        "last";
+
+    @Test
+    public void testEveryChunkSize() throws IOException, SDLParseException {
+        final byte[] bytes = TRICKY.getBytes(UTF_8);
+        final List<Tag> expected = new Parser(new StringReader(TRICKY)).parse();
+        assertEquals(4, expected.size());
+
+        for(int chunk = 1; chunk <= bytes.length; chunk++) {
+            final IncrementalParser parser = new IncrementalParser();
+            final List<Tag> tags = new ArrayList<>();
+            for(int i = 0; i < bytes.length; i += chunk) {
+                tags.addAll(parser.feed(ByteBuffer.wrap(bytes, i, Math.min(chunk, bytes.length - i))));
+            }
+            tags.addAll(parser.finish());
+            assertEquals(expected, tags, "chunk size " + chunk);
+        }
+    }
+
+    @Test
+    public void testStringContinuedAfterTrailingWhitespace() throws IOException, SDLParseException {
+        final String sdl = "a \"x \\  \n y\"\nb 1";
+        final List<Tag> expected = new Parser(new StringReader(sdl)).parse();
+        assertEquals(2, expected.size());
+
+        final IncrementalParser parser = new IncrementalParser();
+        final List<Tag> tags = new ArrayList<>(parser.feed(sdl.substring(0, sdl.indexOf('\n') + 1)));
+        assertTrue(tags.isEmpty());
+        tags.addAll(parser.feed(sdl.substring(sdl.indexOf('\n') + 1)));
+        tags.addAll(parser.finish());
+        assertEquals(expected, tags);
+    }
+
+    @Test
+    public void testTagsAreEmittedWhenComplete() throws SDLParseException {
+        final IncrementalParser parser = new IncrementalParser();
+
+        assertTrue(parser.feed("first 1\nsecond {\n").size() == 1);
+        assertFalse(parser.isBetweenTags());
+        assertTrue(parser.feed(CharBuffer.wrap("    child\n")).isEmpty());
+
+        final List<Tag> tags = parser.feed("}\n");
+        assertEquals(1, tags.size());
+        assertEquals("child", tags.get(0).getChildren().get(0).getName());
+        assertTrue(parser.isBetweenTags());
+        assertTrue(parser.finish().isEmpty());
+    }
+
+    @Test
+    public void testResourceFiles() throws IOException, SDLParseException {
+        for(final String file : new String[] {"datatypes.sdl", "details.sdl", "example.sdl", "test_structures.sdl"}) {
+            final byte[] bytes = readTestResource(file);
+            final List<Tag> expected = new Parser(new InputStreamReader(this.getClass().getClassLoader().getResourceAsStream(file), UTF_8)).parse();
+
+            final IncrementalParser parser = new IncrementalParser();
+            final List<Tag> tags = new ArrayList<>();
+            for(int i = 0; i < bytes.length; i += 7) {
+                tags.addAll(parser.feed(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i))));
+            }
+            tags.addAll(parser.finish());
+            assertEquals(expected, tags, file);
+        }
+    }
+
+    @Test
+    public void testErrorLineNumbers() throws SDLParseException {
+        final IncrementalParser parser = new IncrementalParser();
+        parser.feed("one\ntwo\n");
+
+        final SDLParseException e = assertThrows(SDLParseException.class, () -> parser.feed("three = 3\n"));
+        assertEquals(3, e.getLine());
+    }
+
+    @Test
+    public void testUnfinishedInput() throws SDLParseException {
+        final IncrementalParser parser = new IncrementalParser();
+        parser.feed("parent {\n    child\n");
+
+        assertThrows(SDLParseException.class, parser::finish);
+        assertThrows(IllegalStateException.class, () -> parser.feed("}"));
+    }
+
+    private byte[] readTestResource(final String file) throws IOException {
+        try(final InputStream in = this.getClass().getClassLoader().getResourceAsStream(file)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
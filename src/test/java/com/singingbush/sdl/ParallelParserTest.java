@@ -0,0 +1,87 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelParserTest {
+
+    private static final String TAGS = "# comment {\n" +
+        "title \"Some {title}\" /* block\n" +
+        "{ comment */ size=10\n" +
+        "parent {\n" +
+        "    child `multi\n" +
+        "{ line` [sdf789GSfsb2+3324sf2]\n" +
+        "    日本語 'x' -- comment {\n" +
+        "    nested {\n" +
+        "        deep 1; deeper 2\n" +
+        "    } }\n" +
+        "    after \\\n" +
+        "        continued=true\n" +
+        "}\n" +
+        "\n";
+
+    @Test
+    public void testSameResultAsParse() throws IOException, SDLParseException {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 50; i++) {
+            sb.append(TAGS).append("count ").append(i).append('\n');
+        }
+        final String text = sb.toString();
+        final List<Tag> expected = new Parser(text).parse();
+        assertEquals(150, expected.size());
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for(final int segmentSize : new int[] {1, 100, 1000, 100000}) {
+                assertEquals(expected, ParallelParser.parse(ByteBuffer.wrap(text.getBytes(UTF_8)), pool, segmentSize));
+            }
+            assertEquals(expected, Parser.parseParallel(ByteBuffer.wrap(text.getBytes(UTF_8)), pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testFromPath(@TempDir final Path dir) throws IOException, SDLParseException {
+        final Path file = Files.write(dir.resolve("test.sdl"), TAGS.getBytes(UTF_8));
+
+        try(final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals(new Parser(TAGS).parse(), ParallelParser.parse(channel, ForkJoinPool.commonPool(), 1));
+        }
+        assertEquals(new Parser(TAGS).parse(), Parser.parseParallel(file));
+    }
+
+    @Test
+    public void testDashesAfterNonAsciiIdentifier() throws IOException, SDLParseException {
+        // the bytes of 'é' are part of the identifier, the "--" after them does not start a comment
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; sb.length() <= ParallelParser.MIN_SEGMENT_SIZE * 4; i++) {
+            sb.append("tag").append(i).append(" é--x=1 {\n  child 1\n  other 2\n}\n");
+        }
+        final String text = sb.toString();
+        final List<Tag> expected = new Parser(text).parse();
+
+        assertEquals(expected, Parser.parseParallel(ByteBuffer.wrap(text.getBytes(UTF_8))));
+    }
+
+    @Test
+    public void testErrorLineNumbers() {
+        final ByteBuffer utf8 = ByteBuffer.wrap((TAGS + TAGS + "bad = 1\n" + TAGS).getBytes(UTF_8));
+
+        final SDLParseException e = assertThrows(SDLParseException.class, () -> ParallelParser.parse(utf8, ForkJoinPool.commonPool(), 1));
+        assertEquals(29, e.getLine());
+    }
+}
@@ -1,15 +1,31 @@
 package com.singingbush.sdl;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -139,6 +155,217 @@ public class ParserTest {
         assertEquals("author", tags.get(0).getName());
     }
 
+    @Test
+    public void testUnicodeIdentifiers() throws IOException, SDLParseException {
+        final List<Tag> tags = new Parser(new StringReader("日本語 \"value\" größe=5\nname.with-dash$ 1")).parse();
+
+        assertEquals(2, tags.size());
+        assertEquals("日本語", tags.get(0).getName());
+        assertEquals(5, tags.get(0).getAttribute("größe"));
+        assertEquals("name.with-dash$", tags.get(1).getName());
+    }
+
+    @Test
+    public void testDateTimeFollowedByValues() throws IOException, SDLParseException {
+        final Tag tag = new Parser("entry 2005/12/05 14:12:23.345 2005/12/06 7 12:30:00").parse().get(0);
+
+        assertEquals(4, tag.getValues().size());
+        assertEquals(SdlType.DATETIME, tag.getSdlValue().getType());
+        assertEquals(LocalDate.of(2005, 12, 6), tag.getValue(1));
+        assertEquals(7, tag.getValue(2));
+    }
+
+    @Test
+    public void testParseWithHandler() throws IOException, SDLParseException {
+        final int[] counts = new int[4];
+        final StringBuilder names = new StringBuilder();
+
+        new Parser("ns:parent 1 2 key=true {\n    child \"a\" ns:key=3\n    \"anonymous\"\n}").parse(new SdlHandler() {
+            @Override
+            public void startTag(final String namespace, final String name) {
+                counts[0]++;
+                names.append(namespace).append(':').append(name).append(' ');
+            }
+
+            @Override
+            public void value(final SdlValue value) {
+                counts[1]++;
+            }
+
+            @Override
+            public void attribute(final String namespace, final String key, final SdlValue value) {
+                counts[2]++;
+                names.append(namespace).append(':').append(key).append(' ');
+            }
+
+            @Override
+            public void endTag() {
+                counts[3]++;
+            }
+        });
+
+        assertEquals(3, counts[0]);
+        assertEquals(4, counts[1]);
+        assertEquals(2, counts[2]);
+        assertEquals(3, counts[3]);
+        assertEquals("ns:parent :key :child ns:key :content ", names.toString());
+    }
+
+    @Test
+    public void testStream() throws IOException, SDLParseException {
+        final List<Tag> expected = new Parser(loadTestResource("example.sdl")).parse();
+
+        try(final Stream<Tag> stream = new Parser(loadTestResource("example.sdl")).stream()) {
+            assertEquals(expected, stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testStreamIsLazy() {
+        // the malformed second tag is never read
+        final Optional<Tag> first = new Parser("first 1\nsecond {\n").stream().findFirst();
+
+        assertTrue(first.isPresent());
+        assertEquals("first", first.get().getName());
+
+        assertThrows(IllegalArgumentException.class, () -> new Parser("first 1\nsecond {\n").stream().count());
+    }
+
+    @Test
+    public void testParseUtf8Bytes() throws IOException, SDLParseException {
+        final String text = "日本語 \"größe\" key=5\r\nparent {\r    child `multi\nline`\n}\n";
+        final List<Tag> expected = new Parser(new StringReader(text)).parse();
+        assertEquals(2, expected.size());
+
+        final byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, new Parser(utf8).parse());
+        assertEquals(expected, new Parser(text).parse());
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+        direct.put(utf8).flip();
+        assertEquals(expected, new Parser(direct).parse());
+    }
+
+    @Test
+    public void testFromPath(@TempDir final Path dir) throws IOException, SDLParseException {
+        final String text = "日本語 \"größe\" key=5\r\nparent {\r\n    child `a multi\nline string` 1 2 3\n}\nlast 2015/12/06\r\n";
+        final Path file = Files.write(dir.resolve("test.sdl"), text.getBytes(StandardCharsets.UTF_8));
+        final List<Tag> expected = new Parser(text).parse();
+        assertEquals(3, expected.size());
+
+        assertEquals(expected, Parser.fromPath(file).parse());
+
+        // small windows so that lines and line endings are split across them
+        for(int window = 1; window < 24; window++) {
+            final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            assertEquals(expected, new Parser(new LineSource.MappedSource(channel, window), 0).parse(), "window " + window);
+            assertFalse(channel.isOpen());
+        }
+    }
+
+    @Test
+    public void testDeeplyNested() throws IOException, SDLParseException {
+        final Tag deep = new Parser(nested(20000)).parse().get(0);
+        assertEquals(20000, deep.getChildren(true).size());
+        assertEquals("leaf", deep.getChild("leaf", true).getName());
+
+        // comparing and hashing don't recurse either
+        final Tag again = new Parser(nested(20000)).parse().get(0);
+        assertEquals(deep, again);
+        assertEquals(deep.hashCode(), again.hashCode());
+        assertEquals(deep.hashCode(), deep.freeze().hashCode());
+        assertNotEquals(deep, new Parser(nested(19999)).parse().get(0));
+
+        // output is indented so grows with the square of the depth
+        final String text = new Parser(nested(2000)).parse().get(0).toString();
+        assertTrue(text.startsWith("level 0 {"));
+        assertTrue(text.endsWith("}"));
+        assertEquals(2000, new Parser(text).parse().get(0).getChildren(true).size());
+
+        final SDLParseException e = assertThrows(SDLParseException.class,
+            () -> new Parser(nested(200)).withMaxDepth(100).parse());
+        assertEquals(101, e.getLine());
+    }
+
+    @Test
+    public void testStreamWithPath() throws IOException, SDLParseException {
+        final List<Tag> tags = new Parser(loadTestResource("example.sdl")).parse();
+
+        for(final String expression : new String[] {"contents/section", "//section//paragraph", "//*", "*[@active=true]", "contents/*/*[.]"}) {
+            final SdlPath path = SdlPath.compile(expression);
+            try(final Stream<Tag> stream = new Parser(loadTestResource("example.sdl")).stream(path)) {
+                assertEquals(path.select(tags), stream.collect(Collectors.toList()), expression);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamWithPathSkipsBodies() throws IOException, SDLParseException {
+        final String text = "ignored {\n" +
+            "    child \"}\" `\n" +
+            "}` {\n" +
+            "        /* } */ grandchild '}' # }\n" +
+            "    }\n" +
+            "}\n" +
+            "wanted 1 {\n" +
+            "    child 2\n" +
+            "}\n" +
+            "wanted 3\n" +
+            "broken {\n";
+
+        final List<Tag> wanted = new Parser(text).stream(SdlPath.compile("wanted")).limit(2).collect(Collectors.toList());
+        assertEquals(2, wanted.size());
+        assertEquals(1, wanted.get(0).getValue());
+        assertEquals(2, wanted.get(0).getChild("child").getValue());
+        assertEquals(3, wanted.get(1).getValue());
+
+        // errors after a skipped body still report the right line
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> new Parser(text + "}\n}\n").stream(SdlPath.compile("none")).count());
+        assertEquals(13, ((SDLParseException) e.getCause()).getLine());
+    }
+
+    @Test
+    public void testIdentifiersAreInterned() throws IOException, SDLParseException {
+        final SymbolTable symbols = new SymbolTable();
+        final List<Tag> first = new Parser("ns:server port=1\nns:server port=2").withSymbolTable(symbols).parse();
+        final List<Tag> second = new Parser("ns:server port=3").withSymbolTable(symbols).parse();
+
+        assertSame(first.get(0).getName(), first.get(1).getName());
+        assertSame(first.get(0).getNamespace(), second.get(0).getNamespace());
+        assertSame(first.get(1).getAttributes().firstKey(), second.get(0).getAttributes().firstKey());
+        assertEquals(3, symbols.size());
+
+        // once full identifiers are still read but no longer interned
+        final SymbolTable small = new SymbolTable(2);
+        final List<Tag> tags = new Parser("a x=1\na x=2\nb y=3\nb y=4").withSymbolTable(small).parse();
+        assertEquals(2, small.size());
+        assertSame(tags.get(0).getAttributes().firstKey(), tags.get(1).getAttributes().firstKey());
+        assertNotSame(tags.get(2).getName(), tags.get(3).getName());
+        assertEquals("b", tags.get(3).getName());
+
+        // enough symbols to make the table grow
+        final StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 1000; i++) {
+            text.append("tag").append(i).append(" key").append(i).append("=1\n");
+        }
+        final SymbolTable large = new SymbolTable();
+        assertEquals(new Parser(text.toString()).parse(), new Parser(text.toString()).withSymbolTable(large).parse());
+        assertEquals(2000, large.size());
+    }
+
+    private static String nested(final int depth) {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < depth; i++) {
+            sb.append("level ").append(i).append(" {\n");
+        }
+        sb.append("leaf\n");
+        for(int i = 0; i < depth; i++) {
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
     private InputStreamReader loadTestResource(final String testResourceFile) throws UnsupportedEncodingException {
         final InputStream testData = this.getClass()
                 .getClassLoader()
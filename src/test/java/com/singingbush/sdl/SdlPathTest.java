@@ -0,0 +1,109 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SdlPathTest {
+
+    private static final String CONFIG = "servers {\n" +
+        "    server port=8080 {\n" +
+        "        host \"alpha\"\n" +
+        "    }\n" +
+        "    server port=80 {\n" +
+        "        host \"beta\"\n" +
+        "    }\n" +
+        "    server port=9000L secure=true {\n" +
+        "        host \"gamma\"\n" +
+        "        db:host \"delta\"\n" +
+        "    }\n" +
+        "}\n" +
+        "section \"a\" {\n" +
+        "    section \"b\" {\n" +
+        "        section \"c\"\n" +
+        "    }\n" +
+        "    created 2015/12/06\n" +
+        "}\n";
+
+    @Test
+    public void testSelect() throws IOException, SDLParseException {
+        final List<Tag> tags = new Parser(CONFIG).parse();
+
+        assertEquals(3, SdlPath.compile("servers/server").select(tags).size());
+        // a name without a namespace matches in any namespace
+        assertEquals(values("alpha", "gamma", "delta"), values(SdlPath.compile("servers/server[@port>8000]/host").select(tags)));
+        assertEquals(values("gamma"), values(SdlPath.compile("servers/server[@secure=true]/host[.!=\"delta\"]").select(tags)));
+        assertEquals(values("delta"), values(SdlPath.compile("servers/*/db:host").select(tags)));
+        assertEquals(values("delta"), values(SdlPath.compile("servers/*/db:*").select(tags)));
+        assertEquals(values("beta"), values(SdlPath.compile("servers/server/host[. = \"beta\"]").select(tags)));
+        assertEquals(values("alpha", "gamma", "delta"), values(SdlPath.compile("//host[.!=\"beta\"]").select(tags)));
+        assertTrue(SdlPath.compile("servers/server[@missing]").select(tags).isEmpty());
+
+        // select relative to a tag and stop at the first match
+        final Tag servers = tags.get(0);
+        assertEquals("alpha", SdlPath.compile("server/host").selectFirst(servers).getValue());
+        assertNull(SdlPath.compile("server[@port<80]").selectFirst(servers));
+    }
+
+    @Test
+    public void testDescendantsAreSelectedOnce() throws IOException, SDLParseException {
+        final List<Tag> tags = new Parser(CONFIG).parse();
+
+        // "c" is reached through both of the sections above it
+        assertEquals(values("a", "b", "c"), values(SdlPath.compile("//section").select(tags)));
+        assertEquals(values("b", "c"), values(SdlPath.compile("//section//section").select(tags)));
+        assertEquals(values("c"), values(SdlPath.compile("section/section/section[.]").select(tags)));
+        assertEquals(1, SdlPath.compile("//created[. >= 2015/1/1]").select(tags).size());
+
+        final List<Tag> visited = new ArrayList<>();
+        SdlPath.compile("//*").forEach(tags.get(1), visited::add);
+        assertEquals(3, visited.size());
+    }
+
+    @Test
+    public void testTagsAreOnlyNeededToMatch() {
+        final SdlPath path = SdlPath.compile("servers/server[@port>100]/host");
+        assertFalse(path.needsTag(SdlPath.START, "", "servers"));
+        assertFalse(path.needsTag(SdlPath.START, "", "section"));
+
+        final long inServers = path.advance(SdlPath.START, "", "servers");
+        assertTrue(path.needsTag(inServers, "", "server"));
+        assertFalse(path.needsTag(inServers, "", "client"));
+        assertEquals(0L, path.advance(inServers, "", "client"));
+
+        final SdlPath descendants = SdlPath.compile("//db:host");
+        assertFalse(descendants.needsTag(SdlPath.START, "", "servers"));
+        assertFalse(descendants.needsTag(SdlPath.START, "", "host"));
+        assertTrue(descendants.needsTag(SdlPath.START, "db", "host"));
+        assertEquals(SdlPath.START, descendants.advance(SdlPath.START, "", "servers"));
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        assertThrows(IllegalArgumentException.class, () -> SdlPath.compile(""));
+        assertThrows(IllegalArgumentException.class, () -> SdlPath.compile("servers/"));
+        assertThrows(IllegalArgumentException.class, () -> SdlPath.compile("servers[port=1]"));
+        assertThrows(IllegalArgumentException.class, () -> SdlPath.compile("servers[@port=1"));
+        assertThrows(IllegalArgumentException.class, () -> SdlPath.compile("servers[@port=nothing]"));
+        assertThrows(IllegalArgumentException.class, () -> SdlPath.compile("servers[@name=\"unterminated]"));
+        assertEquals("a//b[@c]", SdlPath.compile("a//b[@c]").toString());
+    }
+
+    private static List<Object> values(final Object... values) {
+        return Arrays.asList(values);
+    }
+
+    private static List<Object> values(final List<Tag> tags) {
+        return tags.stream().map(Tag::getValue).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,151 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.NoSuchElementException;
+
+import static com.singingbush.sdl.SdlReader.Event.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SdlReaderTest {
+
+    @Test
+    public void testEventsForSimpleTag() throws IOException, SDLParseException {
+        final SdlReader reader = new SdlReader("author \"Peter Parker\" 33 email=\"peter@example.org\" ns:active=true");
+
+        assertNull(reader.getEvent());
+
+        assertEquals(START_TAG, reader.next());
+        assertEquals("author", reader.getName());
+        assertEquals("", reader.getNamespace());
+
+        assertEquals(VALUE, reader.next());
+        assertEquals("Peter Parker", reader.getValue());
+        assertEquals(SdlType.STRING, reader.getSdlValue().getType());
+
+        assertEquals(VALUE, reader.next());
+        assertEquals(33, reader.getValue());
+
+        assertEquals(ATTRIBUTE, reader.next());
+        assertEquals("email", reader.getName());
+        assertEquals("", reader.getNamespace());
+        assertEquals("peter@example.org", reader.getValue());
+
+        assertEquals(ATTRIBUTE, reader.next());
+        assertEquals("active", reader.getName());
+        assertEquals("ns", reader.getNamespace());
+        assertEquals(true, reader.getValue());
+
+        assertEquals(END_TAG, reader.next());
+        assertEquals("author", reader.getName());
+
+        assertFalse(reader.hasNext());
+        assertThrows(NoSuchElementException.class, reader::next);
+    }
+
+    @Test
+    public void testNestedTags() throws IOException, SDLParseException {
+        final SdlReader reader = new SdlReader("ns:parent {\n    child 1\n    \"anonymous\"\n}\nsibling");
+
+        assertEquals(START_TAG, reader.next());
+        assertEquals("parent", reader.getName());
+        assertEquals("ns", reader.getNamespace());
+        assertEquals(START_CHILDREN, reader.next());
+        assertEquals(1, reader.getDepth());
+
+        assertEquals(START_TAG, reader.next());
+        assertEquals("child", reader.getName());
+        assertEquals(VALUE, reader.next());
+        assertEquals(END_TAG, reader.next());
+
+        assertEquals(START_TAG, reader.next());
+        assertEquals("content", reader.getName());
+        assertEquals(VALUE, reader.next());
+        assertEquals("anonymous", reader.getValue());
+        assertEquals(END_TAG, reader.next());
+
+        assertEquals(END_TAG, reader.next());
+        assertEquals("parent", reader.getName());
+        assertEquals("ns", reader.getNamespace());
+        assertEquals(0, reader.getDepth());
+
+        assertEquals(START_TAG, reader.next());
+        assertEquals("sibling", reader.getName());
+        assertEquals(END_TAG, reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testComments() throws IOException, SDLParseException {
+        final SdlReader reader = new SdlReader("# first\ntag 1 // second\n/* third */");
+
+        assertEquals(COMMENT, reader.next());
+        assertEquals("first", reader.getComment());
+        assertEquals(COMMENT, reader.next());
+        assertEquals("second", reader.getComment());
+        assertEquals(START_TAG, reader.next());
+        assertEquals(VALUE, reader.next());
+        assertEquals(END_TAG, reader.next());
+        assertEquals(COMMENT, reader.next());
+        assertEquals("third", reader.getComment());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testCountsMatchParser() throws IOException, SDLParseException {
+        int tags = 0;
+        int ends = 0;
+        try(final SdlReader reader = new SdlReader(loadTestResource("example.sdl"))) {
+            while(reader.hasNext()) {
+                final SdlReader.Event event = reader.next();
+                if(event == START_TAG) {
+                    tags++;
+                } else if(event == END_TAG) {
+                    ends++;
+                }
+            }
+        }
+
+        int expected = 0;
+        for(final Tag tag : new Parser(loadTestResource("example.sdl")).parse()) {
+            expected += count(tag);
+        }
+        assertEquals(expected, tags);
+        assertEquals(tags, ends);
+    }
+
+    @Test
+    public void testUnbalancedBlocks() {
+        assertThrows(SDLParseException.class, () -> drain(new SdlReader("parent {\n    child\n")));
+        assertThrows(SDLParseException.class, () -> drain(new SdlReader("tag\n}")));
+    }
+
+    private static void drain(final SdlReader reader) throws IOException, SDLParseException {
+        while(reader.hasNext()) {
+            reader.next();
+        }
+    }
+
+    private static int count(final Tag tag) {
+        int total = 1;
+        for(final Tag child : tag.getChildren()) {
+            total += count(child);
+        }
+        return total;
+    }
+
+    private InputStreamReader loadTestResource(final String testResourceFile) throws UnsupportedEncodingException {
+        final InputStream testData = this.getClass()
+                .getClassLoader()
+                .getResourceAsStream(testResourceFile);
+        return new InputStreamReader(testData, "UTF-8");
+    }
+}
@@ -0,0 +1,86 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SdlWriterTest {
+
+    @Test
+    public void testWriteMatchesToString() throws IOException, SDLParseException {
+        final Tag servers = SDL.tag("servers")
+            .withChild(SDL.tag("server")
+                .withNamespace("ns")
+                .withValue(SDL.value("alpha", false))
+                .withAttribute("port", SDL.value(8080))
+                .build())
+            .withChild(SDL.tag("server")
+                .withValue(SDL.value("multi\nline", true))
+                .withChild(SDL.tag("content").withValue(SDL.value(1)).withValue(SDL.value(2)).build())
+                .build())
+            .build();
+
+        final StringWriter out = new StringWriter();
+        try(final SdlWriter writer = new SdlWriter(out)) {
+            writer.startTag("servers").startChildren()
+                .startTag("ns", "server").value(SDL.value("alpha", false)).attribute("port", SDL.value(8080)).endTag()
+                .startTag("server").value(SDL.value("multi\nline", true)).startChildren()
+                .startTag("content").value(SDL.value(1)).value(SDL.value(2)).endTag()
+                .endTag()
+                .endTag();
+            assertEquals(0, writer.getDepth());
+        }
+
+        assertEquals(servers.toString() + System.getProperty("line.separator"), out.toString());
+        assertEquals(servers, new Parser(out.toString()).parse().get(0));
+    }
+
+    @Test
+    public void testAnonymousTagsAndComments() throws IOException, SDLParseException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(final SdlWriter writer = new SdlWriter(bytes)) {
+            writer.comment("first line\nsecond line")
+                .startTag("content").endTag()
+                .startTag("content").attribute("größe", SDL.value(5)).endTag()
+                .startTag("日本語").startChildren()
+                .comment("nested")
+                .startTag("content").value(SDL.value(true)).endTag()
+                .endTag();
+        }
+
+        final String text = new String(bytes.toByteArray(), UTF_8);
+        final List<Tag> tags = new Parser(text).parse();
+        assertEquals(3, tags.size());
+        assertEquals("content", tags.get(0).getName());
+        assertEquals(5, tags.get(1).getAttribute("größe"));
+        assertEquals(true, tags.get(2).getChild("content").getValue());
+
+        final SdlReader reader = new SdlReader(text);
+        assertEquals(SdlReader.Event.COMMENT, reader.next());
+        assertEquals("first line", reader.getComment());
+        assertEquals(SdlReader.Event.COMMENT, reader.next());
+        assertEquals("second line", reader.getComment());
+    }
+
+    @Test
+    public void testMisuse() throws IOException {
+        final SdlWriter writer = new SdlWriter(new StringWriter());
+
+        assertThrows(IllegalStateException.class, writer::endTag);
+        assertThrows(IllegalStateException.class, () -> writer.value(SDL.value(1)));
+        assertThrows(IllegalArgumentException.class, () -> writer.startTag("1abc"));
+
+        writer.startTag("tag").attribute("key", SDL.value(1));
+        assertThrows(IllegalStateException.class, () -> writer.value(SDL.value(1)));
+        assertThrows(IllegalStateException.class, () -> writer.startTag("child"));
+        assertThrows(IllegalStateException.class, () -> writer.comment("text"));
+        assertThrows(IllegalArgumentException.class, () -> writer.attribute("bad key", SDL.value(1)));
+    }
+}
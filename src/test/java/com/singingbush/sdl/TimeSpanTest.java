@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -188,6 +189,12 @@ public class TimeSpanTest {
         shouldConvertToString(root);
     }
 
+    @Test
+    public void testMalformedTimeSpans() {
+        assertThrows(SDLParseException.class, () -> new Tag("root").read("time 12:30"));
+        assertThrows(SDLParseException.class, () -> new Tag("root").read("time 5d:12:30"));
+        assertThrows(SDLParseException.class, () -> new Tag("root").read("time 12:30:00.5x"));
+    }
 
     private SdlValue shouldHaveSingleDurationValue(final Tag tag) {
         assertEquals(1, tag.getChildren().size());
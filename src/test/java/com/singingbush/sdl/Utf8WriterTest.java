@@ -0,0 +1,78 @@
+package com.singingbush.sdl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class Utf8WriterTest {
+
+    private static final String TEXT = "ascii größe 日本語 😀 end";
+
+    @Test
+    public void testEncodesLikeString() throws IOException {
+        // a tiny buffer makes every kind of char land on a buffer boundary
+        for(int size = 4; size < 12; size++) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final Utf8Writer writer = new Utf8Writer(bytes, size);
+            writer.write(TEXT);
+            writer.append(new StringBuilder(TEXT));
+            for(final char c : TEXT.toCharArray()) {
+                writer.write(c);
+            }
+            writer.flush();
+            assertArrayEquals((TEXT + TEXT + TEXT).getBytes(UTF_8), bytes.toByteArray());
+        }
+
+        final ByteArrayOutputStream channel = new ByteArrayOutputStream();
+        final Utf8Writer writer = new Utf8Writer(Channels.newChannel(channel), 5);
+        writer.write(TEXT);
+        writer.close();
+        assertArrayEquals(TEXT.getBytes(UTF_8), channel.toByteArray());
+
+        final ByteArrayOutputStream broken = new ByteArrayOutputStream();
+        final Utf8Writer unpaired = new Utf8Writer(broken);
+        unpaired.write("a\uDE00b\uD83D");
+        unpaired.close();
+        assertEquals("a?b?", new String(broken.toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void testAppendsTagsWithoutClosingTheStream() throws IOException, SDLParseException {
+        final TrackedStream out = new TrackedStream();
+        final WriteOptions options = WriteOptions.defaults();
+        final Utf8Writer writer = new Utf8Writer(out, 16);
+        for(int i = 0; i < 50; i++) {
+            SDL.tag("event").withValue(SDL.value(i)).withAttribute("where", SDL.value("日本", false)).build()
+                .writeTo(writer, options);
+            writer.write(options.getLineSeparator());
+        }
+        writer.close();
+
+        assertFalse(out.closed);
+        final List<Tag> tags = new Parser(new String(out.toByteArray(), UTF_8)).parse();
+        assertEquals(50, tags.size());
+        assertEquals(49, tags.get(49).getValue());
+        assertEquals("日本", tags.get(49).getAttribute("where"));
+
+        assertThrows(IOException.class, () -> writer.write("more"));
+        assertThrows(IllegalArgumentException.class, () -> new Utf8Writer(out, 3));
+    }
+
+    private static final class TrackedStream extends ByteArrayOutputStream {
+        private boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}